@@ -19,6 +19,13 @@ publishingConventions {
 
 testingConventions { testGradleVersions("6.8.3", "6.9.4", "7.6.5", "8.14.2") }
 
+// The large-scale performance scenario only runs on demand: './gradlew test -PperformanceScenario'
+tasks.withType<Test>().configureEach {
+    listOf("performanceScenario", "performanceScenario.projects", "performanceScenario.jars").forEach { p ->
+        providers.gradleProperty(p).orNull?.let { systemProperty(p, it) }
+    }
+}
+
 // === the following custom configuration should be removed once tests are migrated to Java
 apply(plugin = "groovy")
 
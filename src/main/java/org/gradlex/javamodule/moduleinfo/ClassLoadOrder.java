@@ -0,0 +1,155 @@
+// SPDX-License-Identifier: Apache-2.0
+package org.gradlex.javamodule.moduleinfo;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarFile;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+import org.gradlex.javamodule.moduleinfo.internal.BoundedCache;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * The order in which classes are loaded at runtime, used to place the classes that are loaded first at the
+ * beginning of a Jar. Accepted are logs produced with '-Xlog:class+load' (Java 9+) or '-verbose:class' (Java 8),
+ * as well as plain lists with one class name per line.
+ */
+@NullMarked
+final class ClassLoadOrder {
+
+    private static final String MODULE_INFO_CLASS = "module-info.class";
+    private static final String META_INF_FOLDER = "META-INF/";
+
+    // Parsed load order files, shared by all transforms running in the same Gradle daemon
+    private static final BoundedCache<String, ClassLoadOrder> CACHE = new BoundedCache<>(10);
+
+    private final Map<String, Integer> ranks;
+
+    private ClassLoadOrder(Map<String, Integer> ranks) {
+        this.ranks = ranks;
+    }
+
+    static ClassLoadOrder of(File loadOrderFile) {
+        String key = loadOrderFile.getAbsolutePath() + "|" + loadOrderFile.length() + "|"
+                + loadOrderFile.lastModified();
+        return CACHE.computeIfAbsent(key, k -> parse(loadOrderFile));
+    }
+
+    private static ClassLoadOrder parse(File loadOrderFile) {
+        Map<String, Integer> ranks = new HashMap<>();
+        try {
+            for (String line : Files.readAllLines(loadOrderFile.toPath(), StandardCharsets.UTF_8)) {
+                String className = className(line);
+                if (className != null) {
+                    ranks.putIfAbsent(className.replace('.', '/') + ".class", ranks.size());
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return new ClassLoadOrder(ranks);
+    }
+
+    /**
+     * '[0.012s][info][class,load] java.lang.Object source: jrt:/java.base' (-Xlog:class+load)
+     * '[Loaded java.lang.Object from /path/to/rt.jar]' (-verbose:class)
+     * 'java.lang.Object' (plain list)
+     */
+    @Nullable
+    private static String className(String line) {
+        String content = line.trim();
+        if (content.startsWith("[Loaded ")) {
+            content = content.substring("[Loaded ".length());
+        } else {
+            while (content.startsWith("[") && content.indexOf(']') > 0) {
+                content = content.substring(content.indexOf(']') + 1).trim();
+            }
+        }
+        int end = 0;
+        while (end < content.length() && !Character.isWhitespace(content.charAt(end))) {
+            end++;
+        }
+        String className = content.substring(0, end);
+        if (className.isEmpty() || className.startsWith("#")) {
+            return null;
+        }
+        return className;
+    }
+
+    /**
+     * Rewrite the Jar so that the manifest, the 'module-info.class' and the classes of the load order (in that order)
+     * are the first entries. All other entries follow in their original order. The result only depends on the
+     * original Jar and the load order.
+     */
+    void reorder(File jar) {
+        Path reordered = jar.toPath().resolveSibling(jar.getName() + ".reordered");
+        try (ZipFile zipFile = new ZipFile(jar)) {
+            List<ZipEntry> entries = new ArrayList<>();
+            Enumeration<? extends ZipEntry> zipEntries = zipFile.entries();
+            while (zipEntries.hasMoreElements()) {
+                entries.add(zipEntries.nextElement());
+            }
+            // stable sort: entries with the same rank keep their original order
+            List<ZipEntry> sorted = new ArrayList<>(entries);
+            sorted.sort(Comparator.comparingInt(this::rank));
+            if (sorted.equals(entries)) {
+                return;
+            }
+            try (ZipOutputStream outputStream = new ZipOutputStream(Files.newOutputStream(reordered))) {
+                byte[] buffer = new byte[8192];
+                for (ZipEntry entry : sorted) {
+                    ZipEntry copy = new ZipEntry(entry);
+                    copy.setCompressedSize(-1);
+                    outputStream.putNextEntry(copy);
+                    try (InputStream in = zipFile.getInputStream(entry)) {
+                        copy(in, outputStream, buffer);
+                    }
+                    outputStream.closeEntry();
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        try {
+            Files.move(reordered, jar.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private int rank(ZipEntry entry) {
+        String name = entry.getName();
+        // 'JarInputStream' only finds the manifest if it is the first entry (or the second after 'META-INF/')
+        if (META_INF_FOLDER.equals(name)) {
+            return -3;
+        }
+        if (JarFile.MANIFEST_NAME.equals(name)) {
+            return -2;
+        }
+        if (MODULE_INFO_CLASS.equals(name)) {
+            return -1;
+        }
+        return ranks.getOrDefault(name, Integer.MAX_VALUE);
+    }
+
+    private static void copy(InputStream in, OutputStream out, byte[] buffer) throws IOException {
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+// SPDX-License-Identifier: Apache-2.0
+package org.gradlex.javamodule.moduleinfo;
+
+import org.jspecify.annotations.NullMarked;
+
+/**
+ * What to do if the same entry (file path) is found more than once when a Module Jar is constructed.
+ * This usually happens when Jars are merged. The first entry is always the one that ends up in the Module Jar.
+ */
+@NullMarked
+public enum DuplicateEntryPolicy {
+    /**
+     * Keep the first entry and silently drop all further entries with the same path.
+     */
+    KEEP_FIRST,
+    /**
+     * Fail the transformation.
+     */
+    FAIL,
+    /**
+     * Keep the first entry and list all dropped entries in a warning. The warning is the report: it is logged once
+     * per Module Jar when the Jar is transformed, and not repeated if Gradle reuses an earlier transform result.
+     */
+    REPORT
+}
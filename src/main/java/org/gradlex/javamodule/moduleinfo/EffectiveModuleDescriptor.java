@@ -0,0 +1,177 @@
+// SPDX-License-Identifier: Apache-2.0
+package org.gradlex.javamodule.moduleinfo;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Everything that goes into a generated 'module-info.class', and nothing else: the module spec combined with what
+ * was found in the Jar and in the metadata of the component. All collections that influence the order of
+ * directives are kept as lists.
+ * Two descriptors are equal if all their content is equal, so that a descriptor can be the key for the bytes
+ * generated from it.
+ */
+@NullMarked
+final class EffectiveModuleDescriptor {
+
+    final String moduleName;
+    final boolean openModule;
+
+    @Nullable
+    final String moduleVersion;
+
+    final List<String> packages; // all packages of the module, written to the 'ModulePackages' attribute
+    final List<String> autoExportedPackages;
+    final List<Map.Entry<String, List<String>>> exports;
+    final List<Map.Entry<String, List<String>>> opens;
+    final List<String> requiresFromMetadata;
+    final List<String> requiresTransitiveFromMetadata;
+    final List<String> requiresStaticTransitiveFromMetadata;
+    final List<String> requiresFromBytecode;
+    final List<String> requiresStaticFromBytecode;
+    final List<String> requires;
+    final List<String> requiresTransitive;
+    final List<String> requiresStatic;
+    final List<String> requiresStaticTransitive;
+    final List<String> uses;
+    final List<Map.Entry<String, List<String>>> providers;
+    final List<Map.Entry<String, List<String>>> additionalProviders;
+
+    // only relevant if an existing descriptor is preserved
+    @Nullable
+    final byte[] existingModuleInfo;
+
+    final Set<String> removedPackages;
+    final Map<String, Set<String>> ignoreServiceProviders;
+
+    private final int hash;
+
+    EffectiveModuleDescriptor(
+            ModuleInfo moduleInfo,
+            @Nullable String versionFromFile,
+            Set<String> autoExportedPackages,
+            Set<String> allPackages,
+            Map<String, Set<String>> providers,
+            List<String> requiresFromMetadata,
+            List<String> requiresTransitiveFromMetadata,
+            List<String> requiresStaticTransitiveFromMetadata,
+            List<String> requiresFromBytecode,
+            List<String> requiresStaticFromBytecode,
+            @Nullable byte[] existingModuleInfo) {
+        boolean preserveExisting = moduleInfo.preserveExisting && existingModuleInfo != null;
+        this.moduleName = moduleInfo.getModuleName();
+        this.openModule = moduleInfo.openModule;
+        this.moduleVersion =
+                moduleInfo.getModuleVersion() == null ? versionFromFile : moduleInfo.getModuleVersion();
+        this.autoExportedPackages = new ArrayList<>(autoExportedPackages);
+        this.exports = entries(moduleInfo.exports);
+        this.opens = entries(moduleInfo.opens);
+        this.requiresFromMetadata = new ArrayList<>(requiresFromMetadata);
+        this.requiresTransitiveFromMetadata = new ArrayList<>(requiresTransitiveFromMetadata);
+        this.requiresStaticTransitiveFromMetadata = new ArrayList<>(requiresStaticTransitiveFromMetadata);
+        this.requiresFromBytecode = new ArrayList<>(requiresFromBytecode);
+        this.requiresStaticFromBytecode = new ArrayList<>(requiresStaticFromBytecode);
+        this.requires = new ArrayList<>(moduleInfo.requires);
+        this.requiresTransitive = new ArrayList<>(moduleInfo.requiresTransitive);
+        this.requiresStatic = new ArrayList<>(moduleInfo.requiresStatic);
+        this.requiresStaticTransitive = new ArrayList<>(moduleInfo.requiresStaticTransitive);
+        this.uses = new ArrayList<>(moduleInfo.uses);
+        // providers found in the Jar are not added to an existing descriptor
+        this.providers = preserveExisting
+                ? Collections.emptyList()
+                : withoutIgnored(providers, moduleInfo.ignoreServiceProviders);
+        this.additionalProviders = entries(moduleInfo.getProviders());
+        this.existingModuleInfo = preserveExisting ? existingModuleInfo : null;
+        this.removedPackages = new HashSet<>(moduleInfo.getRemovedPackages());
+        this.ignoreServiceProviders = new HashMap<>(moduleInfo.ignoreServiceProviders);
+        Set<String> modulePackages = new TreeSet<>(allPackages);
+        modulePackages.addAll(autoExportedPackages);
+        this.packages = new ArrayList<>(modulePackages);
+        this.hash = Objects.hash(values()) * 31 + Arrays.hashCode(this.existingModuleInfo);
+    }
+
+    private Object[] values() {
+        return new Object[] {
+            moduleName,
+            openModule,
+            moduleVersion,
+            packages,
+            autoExportedPackages,
+            exports,
+            opens,
+            requiresFromMetadata,
+            requiresTransitiveFromMetadata,
+            requiresStaticTransitiveFromMetadata,
+            requiresFromBytecode,
+            requiresStaticFromBytecode,
+            requires,
+            requiresTransitive,
+            requiresStatic,
+            requiresStaticTransitive,
+            uses,
+            providers,
+            additionalProviders,
+            removedPackages,
+            ignoreServiceProviders
+        };
+    }
+
+    @Override
+    public boolean equals(@Nullable Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof EffectiveModuleDescriptor)) {
+            return false;
+        }
+        EffectiveModuleDescriptor that = (EffectiveModuleDescriptor) o;
+        return hash == that.hash
+                && Arrays.equals(existingModuleInfo, that.existingModuleInfo)
+                && Arrays.equals(values(), that.values());
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    private static List<Map.Entry<String, List<String>>> entries(Map<String, Set<String>> map) {
+        List<Map.Entry<String, List<String>>> result = new ArrayList<>(map.size());
+        for (Map.Entry<String, Set<String>> entry : map.entrySet()) {
+            result.add(new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), new ArrayList<>(entry.getValue())));
+        }
+        return result;
+    }
+
+    private static List<Map.Entry<String, List<String>>> withoutIgnored(
+            Map<String, Set<String>> providers, Map<String, Set<String>> ignoreServiceProviders) {
+        List<Map.Entry<String, List<String>>> result = new ArrayList<>(providers.size());
+        for (Map.Entry<String, Set<String>> entry : providers.entrySet()) {
+            Set<String> skipSet = ignoreServiceProviders.get(entry.getKey());
+            Set<String> implementations = new LinkedHashSet<>(entry.getValue());
+            if (skipSet != null) {
+                if (skipSet.isEmpty()) {
+                    implementations.clear(); // Skip altogether
+                } else {
+                    implementations.removeAll(skipSet); // Skip some
+                }
+            }
+            if (!implementations.isEmpty()) {
+                result.add(new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), new ArrayList<>(implementations)));
+            }
+        }
+        return result;
+    }
+}
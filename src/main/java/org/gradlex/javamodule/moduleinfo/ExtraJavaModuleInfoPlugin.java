@@ -6,73 +6,196 @@ import static org.gradle.api.attributes.Category.LIBRARY;
 import static org.gradle.api.attributes.Usage.JAVA_RUNTIME;
 import static org.gradle.api.attributes.Usage.USAGE_ATTRIBUTE;
 import static org.gradle.api.plugins.JavaPlugin.RUNTIME_CLASSPATH_CONFIGURATION_NAME;
-import static org.gradlex.javamodule.moduleinfo.ExtraJavaModuleInfoPluginExtension.JAVA_MODULE_ATTRIBUTE;
+import static org.gradlex.javamodule.moduleinfo.internal.JavaModuleRules.JAVA_MODULE_ATTRIBUTE;
+import static org.gradlex.javamodule.moduleinfo.internal.JavaModuleRules.JAVA_MODULE_SPEC_ATTRIBUTE;
 
 import java.io.CharArrayReader;
 import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.Method;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Properties;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import org.gradle.api.Action;
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
 import org.gradle.api.Transformer;
 import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.ConfigurationContainer;
 import org.gradle.api.artifacts.component.ComponentIdentifier;
 import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
 import org.gradle.api.artifacts.dsl.DependencyHandler;
 import org.gradle.api.artifacts.result.ResolvedArtifactResult;
 import org.gradle.api.artifacts.result.ResolvedComponentResult;
+import org.gradle.api.artifacts.result.ResolvedDependencyResult;
 import org.gradle.api.attributes.Attribute;
 import org.gradle.api.attributes.Category;
 import org.gradle.api.attributes.Usage;
 import org.gradle.api.file.Directory;
+import org.gradle.api.file.FileCollection;
 import org.gradle.api.file.ProjectLayout;
 import org.gradle.api.file.RegularFile;
 import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.initialization.Settings;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.plugins.BasePlugin;
+import org.gradle.api.plugins.ExtensionAware;
+import org.gradle.api.plugins.ExtensionContainer;
 import org.gradle.api.plugins.HelpTasksPlugin;
+import org.gradle.api.plugins.JavaApplication;
 import org.gradle.api.plugins.JavaPlugin;
+import org.gradle.api.plugins.JavaPluginExtension;
+import org.gradle.api.provider.MapProperty;
+import org.gradle.api.provider.Property;
 import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.SourceSet;
 import org.gradle.api.tasks.SourceSetContainer;
+import org.gradle.jvm.toolchain.JavaInstallationMetadata;
+import org.gradle.jvm.toolchain.JavaToolchainService;
 import org.gradle.util.GradleVersion;
+import org.gradlex.javamodule.moduleinfo.internal.JavaModuleRules;
+import org.gradlex.javamodule.moduleinfo.internal.LargeJarRewrites;
+import org.gradlex.javamodule.moduleinfo.internal.MergedJarTransform;
+import org.gradlex.javamodule.moduleinfo.internal.TransformExecutions;
+import org.gradlex.javamodule.moduleinfo.tasks.ClassDataSharingArchive;
 import org.gradlex.javamodule.moduleinfo.tasks.ModuleDescriptorRecommendation;
+import org.gradlex.javamodule.moduleinfo.tasks.ModuleTransformStatistics;
 import org.jspecify.annotations.NullMarked;
 
 /**
- * Entry point of the plugin.
+ * Entry point of the plugin. It can be applied to a project, or to the settings to define the module information
+ * once for all projects of the build. In both cases, the transforms are registered in each Java project, because
+ * Gradle offers no way to register artifact transforms or attributes for all projects from the settings.
  */
 @NullMarked
-public abstract class ExtraJavaModuleInfoPlugin implements Plugin<Project> {
+public abstract class ExtraJavaModuleInfoPlugin implements Plugin<ExtensionAware> {
 
     private static final GradleVersion MINIMUM_SUPPORTED_VERSION = GradleVersion.version("6.8");
+    private static final int DEFAULT_MAX_PARALLEL_LARGE_JAR_REWRITES = 2;
+
+    private static final boolean MIN_GRADLE_8_8 =
+            GradleVersion.current().compareTo(GradleVersion.version("8.8")) >= 0;
     private static final boolean MIN_GRADLE_9_0 =
             GradleVersion.current().compareTo(GradleVersion.version("9.0.0")) >= 0;
 
     @Override
-    public void apply(Project project) {
+    public void apply(ExtensionAware projectOrSettings) {
         if (GradleVersion.current().compareTo(MINIMUM_SUPPORTED_VERSION) < 0) {
             throw new RuntimeException("This plugin requires Gradle " + MINIMUM_SUPPORTED_VERSION + "+");
         }
+        if (projectOrSettings instanceof Settings) {
+            applySettings((Settings) projectOrSettings);
+        } else if (projectOrSettings instanceof Project) {
+            applyProject((Project) projectOrSettings);
+        } else {
+            throw new RuntimeException("This plugin can only be applied to Settings or Project");
+        }
+    }
 
+    private void applySettings(Settings settings) {
+        ExtraJavaModuleInfoPluginExtension extension = createExtension(settings.getExtensions());
+        extension.getMaxParallelLargeJarRewrites().convention(DEFAULT_MAX_PARALLEL_LARGE_JAR_REWRITES);
+        // The limit for large Jars is build-wide. The service is registered here, before any project registers it.
+        settings.getGradle()
+                .getSharedServices()
+                .registerIfAbsent(LargeJarRewrites.NAME, LargeJarRewrites.class, spec -> spec.getParameters()
+                        .getMaxParallel()
+                        .set(extension.getMaxParallelLargeJarRewrites()));
+        // The specs are defined once in the settings and handed to each project before its build script runs.
+        // Each project still applies the plugin and registers its own transforms with its own parameters.
+        SettingsDefaults defaults = new SettingsDefaults(extension);
+        if (MIN_GRADLE_8_8) {
+            beforeProjectIsolated(settings, defaults);
+        } else {
+            settings.getGradle().beforeProject(defaults);
+        }
+    }
+
+    private static void beforeProjectIsolated(Settings settings, SettingsDefaults defaults) {
+        settings.getGradle().getLifecycle().beforeProject(defaults::execute);
+    }
+
+    private static ExtraJavaModuleInfoPluginExtension createExtension(ExtensionContainer extensions) {
         // register the plugin extension as 'extraJavaModuleInfo {}' configuration block
         ExtraJavaModuleInfoPluginExtension extension =
-                project.getExtensions().create("extraJavaModuleInfo", ExtraJavaModuleInfoPluginExtension.class);
+                extensions.create("extraJavaModuleInfo", ExtraJavaModuleInfoPluginExtension.class);
         extension.getFailOnMissingModuleInfo().convention(true);
         extension.getFailOnAutomaticModules().convention(false);
         extension.getFailOnModifiedDerivedModuleNames().convention(false);
         extension.getSkipLocalJars().convention(false);
         extension.getDeriveAutomaticModuleNamesFromFileNames().convention(false);
+        extension.getLargeJarSize().convention(32L * 1024 * 1024);
+        return extension;
+    }
+
+    private void applyProject(Project project) {
+        ExtraJavaModuleInfoPluginExtension extension = createExtension(project.getExtensions());
 
         // setup the transform and the tasks for all projects in the build
         project.getPlugins().withType(JavaPlugin.class).configureEach(javaPlugin -> {
             configureTransform(project, extension);
             configureModuleDescriptorTasks(project);
+            configureModuleTransformStatisticsTask(project);
+            configureClassDataSharingArchiveTask(project);
+        });
+    }
+
+    private void configureClassDataSharingArchiveTask(Project project) {
+        // only applications have a main module to start in the training run
+        project.getPlugins().withId("application", applicationPlugin -> {
+            JavaPluginExtension java = project.getExtensions().getByType(JavaPluginExtension.class);
+            JavaApplication application = project.getExtensions().getByType(JavaApplication.class);
+            JavaToolchainService toolchains = project.getExtensions().getByType(JavaToolchainService.class);
+            project.getTasks().register("classDataSharingArchive", ClassDataSharingArchive.class, task -> {
+                task.getModulePath().from(project.getTasks().named(JavaPlugin.JAR_TASK_NAME));
+                task.getModulePath().from(project.getConfigurations().named(RUNTIME_CLASSPATH_CONFIGURATION_NAME));
+                task.getMainModule().convention(application.getMainModule());
+                task.getMainClass().convention(application.getMainClass());
+                task.getJavaLauncher().convention(toolchains.launcherFor(java.getToolchain()));
+                task.getArchiveFile().convention(project.getLayout().getBuildDirectory().file("cds/app.jsa"));
+
+                task.setGroup(BasePlugin.BUILD_GROUP);
+                task.setDescription(
+                        "Creates an AppCDS archive through a training run of the main module on the Module Path");
+            });
+        });
+    }
+
+    private void configureModuleTransformStatisticsTask(Project project) {
+        Provider<TransformExecutions> executions = TransformExecutions.register(project.getGradle());
+        project.getTasks().register("moduleTransformStatistics", ModuleTransformStatistics.class, task -> {
+            task.getTransformExecutions().set(executions);
+            task.usesService(executions);
+            for (Configuration configuration : project.getConfigurations()) {
+                if (configuration.isCanBeResolved()
+                        && Boolean.TRUE.equals(configuration.getAttributes().getAttribute(JAVA_MODULE_ATTRIBUTE))) {
+                    FileCollection original = configuration
+                            .getIncoming()
+                            .artifactView(v -> {
+                                v.lenient(true);
+                                v.attributes(a -> a.attribute(JAVA_MODULE_ATTRIBUTE, false));
+                            })
+                            .getFiles();
+                    FileCollection transformed = configuration.getIncoming().getFiles();
+                    task.configuration(configuration.getName(), original, transformed);
+                }
+            }
+
+            task.setGroup(HelpTasksPlugin.HELP_GROUP);
+            task.setDescription(
+                    "Lists the artifacts of all Configurations for which the 'org.gradlex.extra-java-module-info' plugin is activated and how they are transformed");
         });
     }
 
@@ -80,36 +203,23 @@ public abstract class ExtraJavaModuleInfoPlugin implements Plugin<Project> {
         project.getExtensions().getByType(SourceSetContainer.class).configureEach(sourceSet -> {
             String name = sourceSet.getTaskName("", "moduleDescriptorRecommendations");
             project.getTasks().register(name, ModuleDescriptorRecommendation.class, task -> {
-                Transformer<List<File>, Configuration> artifactsTransformer = configuration -> {
-                    //noinspection CodeBlock2Expr
-                    return configuration.getIncoming().getArtifacts().getArtifacts().stream()
-                            .sorted(Comparator.comparing(artifact ->
-                                    artifact.getId().getComponentIdentifier().toString()))
-                            .map(ResolvedArtifactResult::getFile)
-                            .collect(Collectors.toList());
-                };
-
-                Transformer<List<ResolvedComponentResult>, Configuration> componentsTransformer = configuration -> {
-                    Set<ComponentIdentifier> artifacts =
-                            configuration.getIncoming().getArtifacts().getArtifacts().stream()
-                                    .map(artifact -> artifact.getId().getComponentIdentifier())
-                                    .collect(Collectors.toSet());
-                    return configuration.getIncoming().getResolutionResult().getAllComponents().stream()
-                            .filter(component -> artifacts.contains(component.getId()))
-                            .sorted(Comparator.comparing(
-                                    artifact -> artifact.getId().toString()))
-                            .collect(Collectors.toList());
-                };
-
+                // Only plain data (files and coordinates) is passed to the task, so that it can be stored in the
+                // configuration cache without the resolution results
                 Provider<Configuration> compileClasspath =
                         project.getConfigurations().named(sourceSet.getCompileClasspathConfigurationName());
-                task.getCompileArtifacts().set(compileClasspath.map(artifactsTransformer));
-                task.getCompileResolvedComponentResults().set(compileClasspath.map(componentsTransformer));
+                Provider<List<ResolvedArtifactResult>> compileArtifacts = compileClasspath.map(new ModuleArtifacts());
+                task.getCompileArtifacts().set(compileArtifacts.map(ExtraJavaModuleInfoPlugin::artifactFiles));
+                task.getCompileArtifactCoordinates()
+                        .set(compileArtifacts.map(ExtraJavaModuleInfoPlugin::artifactCoordinates));
+                task.getCompileDependencies().set(compileClasspath.map(new ComponentDependencies()));
 
                 Provider<Configuration> runtimeClasspath =
                         project.getConfigurations().named(sourceSet.getRuntimeClasspathConfigurationName());
-                task.getRuntimeArtifacts().set(runtimeClasspath.map(artifactsTransformer));
-                task.getRuntimeResolvedComponentResults().set(runtimeClasspath.map(componentsTransformer));
+                Provider<List<ResolvedArtifactResult>> runtimeArtifacts = runtimeClasspath.map(new ModuleArtifacts());
+                task.getRuntimeArtifacts().set(runtimeArtifacts.map(ExtraJavaModuleInfoPlugin::artifactFiles));
+                task.getRuntimeArtifactCoordinates()
+                        .set(runtimeArtifacts.map(ExtraJavaModuleInfoPlugin::artifactCoordinates));
+                task.getRuntimeDependencies().set(runtimeClasspath.map(new ComponentDependencies()));
 
                 task.getRelease().convention(21);
 
@@ -144,14 +254,43 @@ public abstract class ExtraJavaModuleInfoPlugin implements Plugin<Project> {
         });
 
         // If 'internal' is added by 'org.gradlex.jvm-dependency-conflict-resolution', extend from it to get access to
-        // versions
-        project.getConfigurations().configureEach(otherConfiguration -> {
-            if ("internal".equals(otherConfiguration.getName())) {
-                javaModulesMergeJars.extendsFrom(otherConfiguration);
+        // versions. Only then the Configurations are searched for it.
+        project.getPlugins()
+                .withId("org.gradlex.jvm-dependency-conflict-resolution", plugin -> project.getConfigurations()
+                        .matching(c -> "internal".equals(c.getName()))
+                        .all(javaModulesMergeJars::extendsFrom));
+
+        // Registered when the plugin is applied, and not when the transform parameters are computed
+        PublishedMetadata.registerDefaultVersionSourceConfiguration(
+                project.getConfigurations(),
+                project.getObjects(),
+                project.getExtensions().findByType(SourceSetContainer.class));
+
+        Attribute<String> artifactType = Attribute.of("artifactType", String.class);
+        Provider<Map<String, String>> additionalKnownModules = extractFromModuleDependenciesPlugin(project);
+
+        // one service for all projects of the build, which hands out the permits for rewriting large Jars; it is
+        // already registered if the plugin is applied in the settings, which is the only place to change the limit
+        Provider<LargeJarRewrites> largeJarRewrites = project.getGradle()
+                .getSharedServices()
+                .registerIfAbsent(LargeJarRewrites.NAME, LargeJarRewrites.class, spec -> spec.getParameters()
+                        .getMaxParallel()
+                        .set(DEFAULT_MAX_PARALLEL_LARGE_JAR_REWRITES));
+        project.afterEvaluate(p -> {
+            if (extension.getMaxParallelLargeJarRewrites().isPresent()) {
+                throw new RuntimeException("'maxParallelLargeJarRewrites' applies to the whole build and can only be"
+                        + " set in settings.gradle(.kts), but it is set in " + p);
             }
         });
 
-        Attribute<String> artifactType = Attribute.of("artifactType", String.class);
+        // Components known to be modules are marked as such, so that their Jars do not enter the transform
+        project.getDependencies()
+                .getAttributesSchema()
+                .attribute(JAVA_MODULE_ATTRIBUTE)
+                .getCompatibilityRules()
+                .add(JavaModuleRules.ModuleIsCompatibleWithJar.class);
+        project.getDependencies().getAttributesSchema().attribute(JAVA_MODULE_SPEC_ATTRIBUTE);
+        project.afterEvaluate(p -> routeKnownModules(p, extension));
 
         project.getExtensions().getByType(SourceSetContainer.class).configureEach(sourceSet -> {
             // by default, activate plugin for all source sets
@@ -198,11 +337,51 @@ public abstract class ExtraJavaModuleInfoPlugin implements Plugin<Project> {
             }
         });
 
-        // Jars may be transformed (or merged into) Module Jars
-        registerTransform("jar", project, extension, javaModulesMergeJars, artifactType, JAVA_MODULE_ATTRIBUTE);
-        // Classpath entries may also be zip files that may be merged into Module Jars (from the docs: "Class paths to
-        // the .jar, .zip or .class files)"
-        registerTransform("zip", project, extension, javaModulesMergeJars, artifactType, JAVA_MODULE_ATTRIBUTE);
+        // Jars may be transformed (or merged into) Module Jars. Classpath entries may also be zip files that may be
+        // merged into Module Jars (from the docs: "Class paths to the .jar, .zip or .class files)"
+        for (String fileExtension : Arrays.asList("jar", "zip")) {
+            registerTransform(
+                    fileExtension,
+                    project,
+                    extension,
+                    javaModulesMergeJars,
+                    artifactType,
+                    JAVA_MODULE_ATTRIBUTE,
+                    additionalKnownModules,
+                    largeJarRewrites,
+                    "");
+            // Components for which specs are defined by coordinates are routed to one transform for all these specs,
+            // or to one transform for the specs that need the classpaths to find the modules for referenced packages
+            registerTransform(
+                    fileExtension,
+                    project,
+                    extension,
+                    javaModulesMergeJars,
+                    artifactType,
+                    JAVA_MODULE_ATTRIBUTE,
+                    additionalKnownModules,
+                    largeJarRewrites,
+                    JavaModuleRules.ROUTED);
+            registerTransform(
+                    fileExtension,
+                    project,
+                    extension,
+                    javaModulesMergeJars,
+                    artifactType,
+                    JAVA_MODULE_ATTRIBUTE,
+                    additionalKnownModules,
+                    largeJarRewrites,
+                    JavaModuleRules.REFERENCING);
+            // Components that are merged by coordinates are routed to a transform without output
+            project.getDependencies().registerTransform(MergedJarTransform.class, t -> {
+                t.getFrom()
+                        .attribute(artifactType, fileExtension)
+                        .attribute(JAVA_MODULE_ATTRIBUTE, false)
+                        .attribute(JAVA_MODULE_SPEC_ATTRIBUTE, JavaModuleRules.MERGED);
+                t.getTo().attribute(artifactType, fileExtension).attribute(JAVA_MODULE_ATTRIBUTE, true);
+            });
+        }
+        project.afterEvaluate(p -> routeModuleSpecs(p, extension));
     }
 
     private void registerTransform(
@@ -211,80 +390,332 @@ public abstract class ExtraJavaModuleInfoPlugin implements Plugin<Project> {
             ExtraJavaModuleInfoPluginExtension extension,
             Configuration javaModulesMergeJars,
             Attribute<String> artifactType,
-            Attribute<Boolean> javaModule) {
+            Attribute<Boolean> javaModule,
+            Provider<Map<String, String>> additionalKnownModules,
+            Provider<LargeJarRewrites> largeJarRewrites,
+            String route) {
         DependencyHandler dependencies = project.getDependencies();
 
         // all Jars have a javaModule=false attribute by default; the transform also recognizes modules and returns them
-        // without modification
+        // without modification. Jars of components without a route to a spec have an empty javaModuleSpec attribute.
         dependencies
                 .getArtifactTypes()
                 .maybeCreate(fileExtension)
                 .getAttributes()
-                .attribute(javaModule, false);
+                .attribute(javaModule, false)
+                .attribute(JAVA_MODULE_SPEC_ATTRIBUTE, "");
+
+        // The transform for routed components only sees the specs of these components. Specs of other components
+        // are only added if they are needed to find module names. The transform for all other Jars sees all specs,
+        // but does not prepare the inputs (e.g. metadata) for the routed components.
+        boolean routed = !route.isEmpty();
+        Provider<Map<String, ModuleSpec>> ownSpecs =
+                extension.getModuleSpecs().map(specs -> ownSpecs(specs, route));
+        Provider<Map<String, ModuleSpec>> moduleSpecs = !routed
+                ? extension.getModuleSpecs()
+                : project.provider(() -> referencesModules(ownSpecs.get().values())
+                        ? extension.getModuleSpecs().get()
+                        : ownSpecs.get());
+        Provider<Map<String, String>> moduleNames = project.provider(() -> routed
+                        && ownSpecs.get().values().stream().anyMatch(ExtraJavaModuleInfoPlugin::needsDependencies)
+                ? moduleNames(extension.getModuleSpecs().get())
+                : Collections.emptyMap());
+
+        Provider<Map<String, String>> routedArtifacts = routed
+                ? routedArtifacts(project, ownSpecs, javaModule)
+                : project.provider(Collections::emptyMap);
 
         // register the transform for Jars and "javaModule=false -> javaModule=true"; the plugin extension object fills
         // the input parameter
         dependencies.registerTransform(ExtraJavaModuleInfoTransform.class, t -> {
             t.parameters(p -> {
-                p.getModuleSpecs().set(extension.getModuleSpecs());
+                p.getModuleSpecs().set(moduleSpecs);
+                p.getRouted().set(routed);
+                p.getRoutedArtifacts().set(routedArtifacts);
+                p.getModuleNames().set(moduleNames);
                 p.getFailOnMissingModuleInfo().set(extension.getFailOnMissingModuleInfo());
                 p.getFailOnAutomaticModules().set(extension.getFailOnAutomaticModules());
                 p.getFailOnModifiedDerivedModuleNames().set(extension.getFailOnModifiedDerivedModuleNames());
                 p.getDeriveAutomaticModuleNamesFromFileNames()
                         .set(extension.getDeriveAutomaticModuleNamesFromFileNames());
+                p.getMultiReleaseTarget().set(extension.getMultiReleaseTarget());
+                p.getClassLoadOrder().set(extension.getClassLoadOrder());
+                p.getLargeJarRewrites().set(largeJarRewrites);
+                p.getLargeJarSize().set(extension.getLargeJarSize());
+                p.getExecutions().set(TransformExecutions.register(project.getGradle()));
 
                 // See:
                 // https://github.com/adammurdoch/dependency-graph-as-task-inputs/blob/main/plugins/src/main/java/TestPlugin.java
-                Provider<Set<ResolvedArtifactResult>> artifacts = project.provider(() -> javaModulesMergeJars
-                        .getIncoming()
-                        .artifactView(v -> v.lenient(true))
-                        .getArtifacts()
-                        .getArtifacts());
+                // 'javaModulesMergeJars' is only resolved (and fingerprinted) if at least one spec merges Jars
+                Provider<Set<ResolvedArtifactResult>> artifacts =
+                        project.provider(() -> mergesJars(ownSpecs.get().values())
+                                ? javaModulesMergeJars
+                                        .getIncoming()
+                                        .artifactView(v -> v.lenient(true))
+                                        .getArtifacts()
+                                        .getArtifacts()
+                                : Collections.emptySet());
                 p.getMergeJarIds().set(artifacts.map(new IdExtractor()));
                 p.getMergeJars().set(artifacts.map(new FileExtractor(project.getLayout())));
 
-                Provider<Set<String>> componentsOfInterest = componentsOfInterest(extension);
-                p.getRequiresFromMetadata().set(componentsOfInterest.map(gaSet -> gaSet.stream()
-                        .collect(Collectors.toMap(ga -> ga, ga -> new PublishedMetadata(ga, project, extension)))));
-                p.getAdditionalKnownModules().set(extractFromModuleDependenciesPlugin(project));
+                // the classpaths are only resolved (and fingerprinted) if at least one spec infers 'requires' from
+                // the bytecode; specs that do are routed separately, so that only their Jars depend on the classpaths
+                Provider<Set<ResolvedArtifactResult>> runtimeClasspath = originalArtifacts(
+                        project, ownSpecs, SourceSet::getRuntimeClasspathConfigurationName, javaModule);
+                Provider<Set<ResolvedArtifactResult>> compileClasspath = originalArtifacts(
+                        project, ownSpecs, SourceSet::getCompileClasspathConfigurationName, javaModule);
+                p.getRuntimeClasspathIds().set(runtimeClasspath.map(new IdExtractor()));
+                p.getRuntimeClasspathJars().set(runtimeClasspath.map(new FileExtractor(project.getLayout())));
+                p.getCompileClasspathIds().set(compileClasspath.map(new IdExtractor()));
+                p.getCompileClasspathJars().set(compileClasspath.map(new FileExtractor(project.getLayout())));
+                // the packages of the platform modules are those of the JDK the project compiles with
+                Provider<JavaInstallationMetadata> platform = platform(project, ownSpecs);
+                p.getPlatformVersion().set(platform.map(m -> m.getLanguageVersion().asInt()));
+                p.getPlatformHome().set(platform.map(JavaInstallationMetadata::getInstallationPath));
+
+                Provider<Set<String>> componentsOfInterest = componentsOfInterest(ownSpecs);
+                Provider<Configuration> versionsSource = versionsSource(project.getConfigurations(), extension);
+                ConfigurationContainer configurations = project.getConfigurations();
+                DependencyHandler dependencyHandler = project.getDependencies();
+                ObjectFactory objects = project.getObjects();
+                p.getRequiresFromMetadata()
+                        .set(componentsOfInterest.map(gaSet -> gaSet.stream()
+                                .collect(Collectors.toMap(ga -> ga, ga -> new PublishedMetadata(
+                                        ga, versionsSource.get(), configurations, dependencyHandler, objects)))));
+                p.getAdditionalKnownModules()
+                        .set(project.provider(() -> componentsOfInterest.get().isEmpty()
+                                ? Collections.<String, String>emptyMap()
+                                : additionalKnownModules.get()));
             });
-            t.getFrom().attribute(artifactType, fileExtension).attribute(javaModule, false);
+            t.getFrom()
+                    .attribute(artifactType, fileExtension)
+                    .attribute(javaModule, false)
+                    .attribute(JAVA_MODULE_SPEC_ATTRIBUTE, route);
             t.getTo().attribute(artifactType, fileExtension).attribute(javaModule, true);
         });
     }
 
-    private Provider<Map<String, String>> extractFromModuleDependenciesPlugin(Project project) {
-        return project.provider(() -> {
-            Object javaModuleDependencies = project.getExtensions().findByName("javaModuleDependencies");
-            if (javaModuleDependencies == null) {
-                return Collections.emptyMap();
-            }
+    private static Provider<Configuration> versionsSource(
+            ConfigurationContainer configurations, ExtraJavaModuleInfoPluginExtension extension) {
+        return extension
+                .getVersionsProvidingConfiguration()
+                .flatMap(configurations::named)
+                .orElse(configurations.named(PublishedMetadata.DEFAULT_VERSION_SOURCE_CONFIGURATION));
+    }
+
+    /**
+     * The module name mappings of the 'org.gradlex.java-module-dependencies' plugin. The location of the mappings
+     * file is taken from the extension of that plugin once it is applied, and not when the transform parameters are
+     * computed. The plugin is not on the classpath of this plugin, which is why its extension is accessed
+     * reflectively.
+     */
+    private static Provider<Map<String, String>> extractFromModuleDependenciesPlugin(Project project) {
+        RegularFileProperty modulesProperties = project.getObjects().fileProperty();
+        project.getPlugins().withId("org.gradlex.java-module-dependencies", plugin -> {
+            Object javaModuleDependencies = project.getExtensions().getByName("javaModuleDependencies");
             try {
                 Method getModulesProperties = javaModuleDependencies.getClass().getMethod("getModulesProperties");
-                RegularFileProperty file = (RegularFileProperty) getModulesProperties.invoke(javaModuleDependencies);
-                return project.getProviders()
-                        .fileContents(file)
-                        .getAsText()
-                        .map(c -> {
-                            Properties p = new Properties();
-                            try {
-                                p.load(new CharArrayReader(c.toCharArray()));
-                            } catch (IOException e) {
-                                throw new RuntimeException(e);
-                            }
-                            @SuppressWarnings({"rawtypes", "unchecked"})
-                            Map<String, String> result = (Map) p;
-                            return result;
-                        })
-                        .getOrElse(Collections.emptyMap());
+                modulesProperties.set((RegularFileProperty) getModulesProperties.invoke(javaModuleDependencies));
             } catch (ReflectiveOperationException e) {
                 throw new RuntimeException(e);
             }
         });
+        return project.getProviders()
+                .fileContents(modulesProperties)
+                .getAsText()
+                .map(c -> {
+                    Properties p = new Properties();
+                    try {
+                        p.load(new CharArrayReader(c.toCharArray()));
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                    @SuppressWarnings({"rawtypes", "unchecked"})
+                    Map<String, String> result = (Map) p;
+                    return result;
+                })
+                .orElse(Collections.emptyMap());
+    }
+
+    private static void routeKnownModules(Project project, ExtraJavaModuleInfoPluginExtension extension) {
+        // A known module is trusted to be a module: 'failOnMissingModuleInfo' is satisfied by the definition, and
+        // there is no need to derive a name. Only 'failOnAutomaticModules' requires to look into the Jar.
+        if (extension.getFailOnAutomaticModules().get()) {
+            return;
+        }
+        Collection<ModuleSpec> moduleSpecs = extension.getModuleSpecs().get().values();
+        Set<String> mergedJars = moduleSpecs.stream()
+                .flatMap(m -> m.getMergedJars().stream())
+                .collect(Collectors.toSet());
+        for (ModuleSpec moduleSpec : moduleSpecs) {
+            String ga = moduleSpec.getIdentifier();
+            if (moduleSpec instanceof KnownModule
+                    && IdValidator.isCoordinates(ga)
+                    && !ga.contains("|")
+                    && !mergedJars.contains(ga)) {
+                project.getDependencies().getComponents().withModule(ga, JavaModuleRules.KnownModule.class);
+            }
+        }
+    }
+
+    private static void routeModuleSpecs(Project project, ExtraJavaModuleInfoPluginExtension extension) {
+        // 'withModule()' rules are looked up by the coordinates of a component, one rule per component is cheap
+        routes(extension.getModuleSpecs().get().values())
+                .forEach((ga, route) -> project.getDependencies()
+                        .getComponents()
+                        .withModule(ga, JavaModuleRules.ModuleSpecRoute.class, r -> r.params(route)));
+    }
+
+    /**
+     * The components that are routed by the 'javaModuleSpec' attribute: components merged by coordinates (route
+     * 'merged') and components with a 'module()' or 'automaticModule()' spec defined by coordinates (route
+     * 'routed', or 'referencing' if the spec infers 'requires' from the bytecode). Components with specs or merges
+     * for classifiers are not routed, as the route applies to all Jars of a component.
+     */
+    private static Map<String, String> routes(Collection<ModuleSpec> moduleSpecs) {
+        Set<String> withClassifier = new HashSet<>();
+        for (ModuleSpec moduleSpec : moduleSpecs) {
+            if (moduleSpec.getClassifier() != null) {
+                withClassifier.add(moduleSpec.getIdentifier());
+            }
+            for (String mergedJar : moduleSpec.getMergedJars()) {
+                if (mergedJar.contains("|")) {
+                    withClassifier.add(mergedJar.substring(0, mergedJar.indexOf('|')));
+                }
+            }
+        }
+        Map<String, String> routes = new TreeMap<>();
+        for (ModuleSpec moduleSpec : moduleSpecs) {
+            for (String mergedJar : moduleSpec.getMergedJars()) {
+                if (IdValidator.isCoordinates(mergedJar) && !withClassifier.contains(mergedJar)) {
+                    routes.put(mergedJar, JavaModuleRules.MERGED);
+                }
+            }
+        }
+        for (ModuleSpec moduleSpec : moduleSpecs) {
+            String ga = moduleSpec.getIdentifier();
+            if (!(moduleSpec instanceof KnownModule)
+                    && IdValidator.isCoordinates(ga)
+                    && !withClassifier.contains(ga)) {
+                routes.putIfAbsent(
+                        ga,
+                        referencesModules(Collections.singleton(moduleSpec))
+                                ? JavaModuleRules.REFERENCING
+                                : JavaModuleRules.ROUTED);
+            }
+        }
+        return routes;
+    }
+
+    private static Map<String, ModuleSpec> ownSpecs(Map<String, ModuleSpec> specs, String route) {
+        Map<String, String> routes = routes(specs.values());
+        return specs.entrySet().stream()
+                .filter(e -> route.isEmpty()
+                        ? !routes.containsKey(e.getValue().getIdentifier())
+                        : route.equals(routes.get(e.getValue().getIdentifier())))
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+    }
+
+    private static Map<String, String> moduleNames(Map<String, ModuleSpec> specs) {
+        return specs.entrySet().stream()
+                .filter(e -> IdValidator.isCoordinates(e.getKey()) && !e.getKey().contains("|"))
+                .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().getModuleName()));
+    }
+
+    /**
+     * The components of the routed Jars, by the absolute paths of the Jars. The original Jars of the routed
+     * components are collected from all classpaths of the project for which the plugin is activated. Gradle resolved
+     * the component of each Jar, so that the routed transform finds the spec of a Jar without parsing its path.
+     */
+    private static Provider<Map<String, String>> routedArtifacts(
+            Project project, Provider<Map<String, ModuleSpec>> ownSpecs, Attribute<Boolean> javaModule) {
+        return project.provider(() -> {
+            Set<String> routedComponents = ownSpecs.get().values().stream()
+                    .map(ModuleSpec::getIdentifier)
+                    .collect(Collectors.toSet());
+            Map<String, String> routedArtifacts = new TreeMap<>();
+            if (routedComponents.isEmpty()) {
+                return routedArtifacts;
+            }
+            for (Configuration classpath : project.getConfigurations()) {
+                if (classpath.isCanBeResolved()
+                        && Boolean.TRUE.equals(classpath.getAttributes().getAttribute(javaModule))) {
+                    classpath
+                            .getIncoming()
+                            .artifactView(v -> {
+                                v.lenient(true);
+                                v.attributes(a -> a.attribute(javaModule, false));
+                                v.componentFilter(id -> id instanceof ModuleComponentIdentifier
+                                        && routedComponents.contains(ga(id)));
+                            })
+                            .getArtifacts()
+                            .getArtifacts()
+                            .forEach(artifact -> routedArtifacts.put(
+                                    artifact.getFile().getAbsolutePath(),
+                                    ga(artifact.getId().getComponentIdentifier())));
+                }
+            }
+            return routedArtifacts;
+        });
     }
 
-    private static Provider<Set<String>> componentsOfInterest(ExtraJavaModuleInfoPluginExtension extension) {
-        return extension.getModuleSpecs().map(specs -> specs.values().stream()
+    /**
+     * The original Jars of the classpaths of all source sets for which the plugin is activated. The result of a
+     * transform is shared by all classpaths that contain the Jar. Hence, the Jars of all these classpaths are used to
+     * find the modules for referenced packages, and not only the classpath of one source set.
+     */
+    private static Provider<Set<ResolvedArtifactResult>> originalArtifacts(
+            Project project,
+            Provider<Map<String, ModuleSpec>> moduleSpecs,
+            Function<SourceSet, String> configurationName,
+            Attribute<Boolean> javaModule) {
+        return project.provider(() -> {
+            SourceSetContainer sourceSets = project.getExtensions().findByType(SourceSetContainer.class);
+            if (sourceSets == null || !referencesModules(moduleSpecs.get().values())) {
+                return Collections.emptySet();
+            }
+            Map<File, ResolvedArtifactResult> artifacts = new LinkedHashMap<>();
+            for (SourceSet sourceSet : sourceSets) {
+                Configuration classpath = project.getConfigurations().findByName(configurationName.apply(sourceSet));
+                if (classpath != null && Boolean.TRUE.equals(classpath.getAttributes().getAttribute(javaModule))) {
+                    classpath
+                            .getIncoming()
+                            .artifactView(v -> {
+                                v.lenient(true);
+                                v.attributes(a -> a.attribute(javaModule, false));
+                            })
+                            .getArtifacts()
+                            .getArtifacts()
+                            .forEach(artifact -> artifacts.putIfAbsent(artifact.getFile(), artifact));
+                }
+            }
+            return new LinkedHashSet<>(artifacts.values());
+        });
+    }
+
+    /**
+     * The JDK of the Java toolchain of the project, if at least one spec infers 'requires' from the bytecode.
+     */
+    private static Provider<JavaInstallationMetadata> platform(
+            Project project, Provider<Map<String, ModuleSpec>> moduleSpecs) {
+        JavaPluginExtension java = project.getExtensions().getByType(JavaPluginExtension.class);
+        JavaToolchainService toolchains = project.getExtensions().getByType(JavaToolchainService.class);
+        return project.provider(() -> referencesModules(moduleSpecs.get().values())
+                ? toolchains.compilerFor(java.getToolchain()).get().getMetadata()
+                : null);
+    }
+
+    private static boolean referencesModules(Collection<ModuleSpec> moduleSpecs) {
+        return moduleSpecs.stream()
+                .anyMatch(m -> m instanceof ModuleInfo && ((ModuleInfo) m).requireAllReferencedModules);
+    }
+
+    private static boolean mergesJars(Collection<ModuleSpec> moduleSpecs) {
+        return moduleSpecs.stream().anyMatch(m -> !m.getMergedJars().isEmpty());
+    }
+
+    private static Provider<Set<String>> componentsOfInterest(Provider<Map<String, ModuleSpec>> moduleSpecs) {
+        return moduleSpecs.map(specs -> specs.values().stream()
                 .filter(ExtraJavaModuleInfoPlugin::needsDependencies)
                 .map(ModuleSpec::getIdentifier)
                 .collect(Collectors.toSet()));
@@ -303,6 +734,57 @@ public abstract class ExtraJavaModuleInfoPlugin implements Plugin<Project> {
         return id.getDisplayName();
     }
 
+    private static List<File> artifactFiles(List<ResolvedArtifactResult> artifacts) {
+        return artifacts.stream().map(ResolvedArtifactResult::getFile).collect(Collectors.toList());
+    }
+
+    private static List<String> artifactCoordinates(List<ResolvedArtifactResult> artifacts) {
+        return artifacts.stream()
+                .map(a -> ga(a.getId().getComponentIdentifier()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * The artifacts of the components from repositories, sorted by component.
+     */
+    private static class ModuleArtifacts implements Transformer<List<ResolvedArtifactResult>, Configuration> {
+        @Override
+        public List<ResolvedArtifactResult> transform(Configuration configuration) {
+            return configuration.getIncoming().getArtifacts().getArtifacts().stream()
+                    .filter(a -> a.getId().getComponentIdentifier() instanceof ModuleComponentIdentifier)
+                    .sorted(Comparator.comparing(
+                            a -> a.getId().getComponentIdentifier().toString()))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * The 'group:name' coordinates of the direct dependencies of each component from a repository.
+     */
+    private static class ComponentDependencies implements Transformer<Map<String, List<String>>, Configuration> {
+        @Override
+        public Map<String, List<String>> transform(Configuration configuration) {
+            Map<String, List<String>> result = new TreeMap<>();
+            for (ResolvedComponentResult component :
+                    configuration.getIncoming().getResolutionResult().getAllComponents()) {
+                if (component.getId() instanceof ModuleComponentIdentifier) {
+                    result.put(
+                            ga(component.getId()),
+                            component.getDependencies().stream()
+                                    .filter(d -> d instanceof ResolvedDependencyResult)
+                                    .map(d -> ((ResolvedDependencyResult) d)
+                                            .getSelected()
+                                            .getModuleVersion())
+                                    .filter(Objects::nonNull)
+                                    .map(v -> v.getGroup() + ":" + v.getName())
+                                    .distinct()
+                                    .collect(Collectors.toList()));
+                }
+            }
+            return result;
+        }
+    }
+
     private static class IdExtractor implements Transformer<List<String>, Collection<ResolvedArtifactResult>> {
         @Override
         public List<String> transform(Collection<ResolvedArtifactResult> artifacts) {
@@ -339,6 +821,55 @@ public abstract class ExtraJavaModuleInfoPlugin implements Plugin<Project> {
         }
     }
 
+    /**
+     * The module specs and settings defined in 'settings.gradle(.kts)'. They are applied to each project, where they
+     * can be extended or overridden in the 'extraJavaModuleInfo {}' block of the build script. The plugin is applied
+     * to the project as well, which registers the transforms if the project is a Java project.
+     */
+    private static class SettingsDefaults implements Action<Project> {
+        private final MapProperty<String, ModuleSpec> moduleSpecs;
+        private final Property<Boolean> failOnMissingModuleInfo;
+        private final Property<Boolean> failOnAutomaticModules;
+        private final Property<Boolean> failOnModifiedDerivedModuleNames;
+        private final Property<Boolean> skipLocalJars;
+        private final Property<Boolean> deriveAutomaticModuleNamesFromFileNames;
+        private final Property<String> versionsProvidingConfiguration;
+        private final Property<Integer> multiReleaseTarget;
+        private final RegularFileProperty classLoadOrder;
+        private final Property<Long> largeJarSize;
+
+        SettingsDefaults(ExtraJavaModuleInfoPluginExtension settingsExtension) {
+            this.moduleSpecs = settingsExtension.getModuleSpecs();
+            this.failOnMissingModuleInfo = settingsExtension.getFailOnMissingModuleInfo();
+            this.failOnAutomaticModules = settingsExtension.getFailOnAutomaticModules();
+            this.failOnModifiedDerivedModuleNames = settingsExtension.getFailOnModifiedDerivedModuleNames();
+            this.skipLocalJars = settingsExtension.getSkipLocalJars();
+            this.deriveAutomaticModuleNamesFromFileNames =
+                    settingsExtension.getDeriveAutomaticModuleNamesFromFileNames();
+            this.versionsProvidingConfiguration = settingsExtension.getVersionsProvidingConfiguration();
+            this.multiReleaseTarget = settingsExtension.getMultiReleaseTarget();
+            this.classLoadOrder = settingsExtension.getClassLoadOrder();
+            this.largeJarSize = settingsExtension.getLargeJarSize();
+        }
+
+        @Override
+        public void execute(Project project) {
+            project.getPlugins().apply(ExtraJavaModuleInfoPlugin.class);
+            ExtraJavaModuleInfoPluginExtension extension =
+                    project.getExtensions().getByType(ExtraJavaModuleInfoPluginExtension.class);
+            extension.getModuleSpecs().putAll(moduleSpecs);
+            extension.getFailOnMissingModuleInfo().convention(failOnMissingModuleInfo);
+            extension.getFailOnAutomaticModules().convention(failOnAutomaticModules);
+            extension.getFailOnModifiedDerivedModuleNames().convention(failOnModifiedDerivedModuleNames);
+            extension.getSkipLocalJars().convention(skipLocalJars);
+            extension.getDeriveAutomaticModuleNamesFromFileNames().convention(deriveAutomaticModuleNamesFromFileNames);
+            extension.getVersionsProvidingConfiguration().convention(versionsProvidingConfiguration);
+            extension.getMultiReleaseTarget().convention(multiReleaseTarget);
+            extension.getClassLoadOrder().convention(classLoadOrder);
+            extension.getLargeJarSize().convention(largeJarSize);
+        }
+    }
+
     @SuppressWarnings("deprecation")
     private void setInvisible(Configuration c) {
         if (!MIN_GRADLE_9_0) {
@@ -1,6 +1,8 @@
 // SPDX-License-Identifier: Apache-2.0
 package org.gradlex.javamodule.moduleinfo;
 
+import static org.gradlex.javamodule.moduleinfo.internal.JavaModuleRules.JAVA_MODULE_ATTRIBUTE;
+
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 import org.gradle.api.Action;
@@ -8,7 +10,7 @@ import org.gradle.api.NamedDomainObjectProvider;
 import org.gradle.api.artifacts.Configuration;
 import org.gradle.api.artifacts.ConfigurationContainer;
 import org.gradle.api.artifacts.MinimalExternalModuleDependency;
-import org.gradle.api.attributes.Attribute;
+import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.model.ObjectFactory;
 import org.gradle.api.provider.MapProperty;
 import org.gradle.api.provider.Property;
@@ -23,7 +25,6 @@ import org.jspecify.annotations.NullMarked;
  */
 @NullMarked
 public abstract class ExtraJavaModuleInfoPluginExtension {
-    static final Attribute<Boolean> JAVA_MODULE_ATTRIBUTE = Attribute.of("javaModule", Boolean.class);
 
     @Inject
     protected abstract ObjectFactory getObjects();
@@ -45,6 +46,35 @@ public abstract class ExtraJavaModuleInfoPluginExtension {
 
     public abstract Property<String> getVersionsProvidingConfiguration();
 
+    /**
+     * If set, Multi-Release Jars that are rewritten by the transform are flattened for the given Java release:
+     * only the highest version of each entry that is not higher than the release is kept.
+     */
+    public abstract Property<Integer> getMultiReleaseTarget();
+
+    /**
+     * If set, the classes listed in the file (e.g. a log produced with '-Xlog:class+load') are placed at the
+     * beginning of the Jars that are rewritten by the transform - after the manifest and the 'module-info.class' -
+     * in the order they appear in the file.
+     */
+    public abstract RegularFileProperty getClassLoadOrder();
+
+    /**
+     * Jars larger than this size in bytes (together with the Jars merged into them) count as large Jars for
+     * {@link #getMaxParallelLargeJarRewrites()}. Defaults to 32 MiB.
+     */
+    public abstract Property<Long> getLargeJarSize();
+
+    /**
+     * The maximum number of large Jars (see {@link #getLargeJarSize()}) that are rewritten by the transform at the
+     * same time. A rewrite streams the entries, but it keeps the name and checksum of each written entry and it
+     * occupies a worker with compressing the entries. Smaller Jars are always rewritten in parallel, up to the
+     * number of workers of the build. Defaults to 2.
+     * The limit applies to the whole build. Hence, it can only be set if the plugin is applied in the settings.
+     * Setting it in a project fails the build.
+     */
+    public abstract Property<Integer> getMaxParallelLargeJarRewrites();
+
     /**
      * Add full module information for a given Jar file.
      *
@@ -5,6 +5,7 @@ import static java.util.Collections.emptySet;
 import static org.gradlex.javamodule.moduleinfo.FilePathToModuleCoordinates.gaCoordinatesFromFilePathMatch;
 import static org.gradlex.javamodule.moduleinfo.FilePathToModuleCoordinates.versionFromFilePath;
 import static org.gradlex.javamodule.moduleinfo.ModuleNameUtil.automaticModulNameFromFileName;
+import static org.gradlex.javamodule.moduleinfo.ModuleNameUtil.isPackagePath;
 
 import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
@@ -15,14 +16,20 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Enumeration;
 import java.util.GregorianCalendar;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
@@ -31,31 +38,43 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.jar.Attributes;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.jar.JarInputStream;
 import java.util.jar.JarOutputStream;
 import java.util.jar.Manifest;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
 import javax.annotation.Nullable;
 import org.gradle.api.artifacts.transform.CacheableTransform;
 import org.gradle.api.artifacts.transform.InputArtifact;
 import org.gradle.api.artifacts.transform.TransformAction;
 import org.gradle.api.artifacts.transform.TransformOutputs;
 import org.gradle.api.artifacts.transform.TransformParameters;
+import org.gradle.api.file.DirectoryProperty;
 import org.gradle.api.file.FileSystemLocation;
 import org.gradle.api.file.RegularFile;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.logging.Logging;
 import org.gradle.api.provider.ListProperty;
 import org.gradle.api.provider.MapProperty;
 import org.gradle.api.provider.Property;
 import org.gradle.api.provider.Provider;
 import org.gradle.api.tasks.Classpath;
 import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFile;
 import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradlex.javamodule.moduleinfo.internal.BoundedCache;
+import org.gradlex.javamodule.moduleinfo.internal.FlightRecorderEvent;
+import org.gradlex.javamodule.moduleinfo.internal.JarEntryClassifier;
+import org.gradlex.javamodule.moduleinfo.internal.JarFacts;
+import org.gradlex.javamodule.moduleinfo.internal.LargeJarRewrites;
+import org.gradlex.javamodule.moduleinfo.internal.TransformExecutions;
 import org.jspecify.annotations.NullMarked;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassVisitor;
@@ -72,16 +91,20 @@ import org.objectweb.asm.Opcodes;
 @CacheableTransform
 public abstract class ExtraJavaModuleInfoTransform implements TransformAction<ExtraJavaModuleInfoTransform.Parameter> {
 
-    private static final Pattern MODULE_INFO_CLASS_MRJAR_PATH =
-            Pattern.compile("META-INF/versions/\\d+/module-info.class");
-    private static final Pattern MRJAR_VERSIONS_PATH = Pattern.compile("META-INF/versions/\\d+/(.*)/.*");
-    private static final Pattern JAR_SIGNATURE_PATH = Pattern.compile("^META-INF/[^/]+\\.(SF|RSA|DSA|sf|rsa|dsa)$");
     private static final String SERVICES_PREFIX = "META-INF/services/";
+    private static final Attributes.Name MULTI_RELEASE = new Attributes.Name("Multi-Release");
 
     // See: org.gradle.api.internal.file.archive.ZipCopyAction.CONSTANT_TIME_FOR_ZIP_ENTRIES
     private static final long CONSTANT_TIME_FOR_ZIP_ENTRIES =
             new GregorianCalendar(1980, Calendar.FEBRUARY, 1, 0, 0, 0).getTimeInMillis();
 
+    // Entries are copied in chunks of this size, independent of the size of the entry
+    private static final int COPY_BUFFER_SIZE = 8192;
+
+    // Generated 'module-info.class' files by their complete descriptor, shared by all transforms running in the same
+    // Gradle daemon. The descriptor is the key itself, not a hash of it, so that different descriptors never collide.
+    private static final BoundedCache<EffectiveModuleDescriptor, byte[]> MODULE_INFO_CACHE = new BoundedCache<>(1000);
+
     public interface Parameter extends TransformParameters {
         @Input
         MapProperty<String, ModuleSpec> getModuleSpecs();
@@ -110,6 +133,58 @@ public abstract class ExtraJavaModuleInfoTransform implements TransformAction<Ex
 
         @Input
         MapProperty<String, String> getAdditionalKnownModules();
+
+        @Input
+        @org.gradle.api.tasks.Optional
+        Property<Integer> getMultiReleaseTarget();
+
+        @InputFile
+        @PathSensitive(PathSensitivity.NONE)
+        @org.gradle.api.tasks.Optional
+        RegularFileProperty getClassLoadOrder();
+
+        @Input
+        ListProperty<String> getRuntimeClasspathIds();
+
+        @InputFiles
+        @Classpath
+        ListProperty<RegularFile> getRuntimeClasspathJars();
+
+        @Input
+        ListProperty<String> getCompileClasspathIds();
+
+        /**
+         * The Java version of the JDK in {@link #getPlatformHome()}. Its modules are part of the result, if 'requires'
+         * are inferred from the bytecode, but the path of the JDK is not.
+         */
+        @Input
+        @org.gradle.api.tasks.Optional
+        Property<Integer> getPlatformVersion();
+
+        @Internal
+        DirectoryProperty getPlatformHome();
+
+        @InputFiles
+        @Classpath
+        ListProperty<RegularFile> getCompileClasspathJars();
+
+        @Input
+        Property<Boolean> getRouted();
+
+        @Input
+        MapProperty<String, String> getRoutedArtifacts();
+
+        @Input
+        MapProperty<String, String> getModuleNames();
+
+        @Internal
+        Property<LargeJarRewrites> getLargeJarRewrites();
+
+        @Internal
+        Property<Long> getLargeJarSize();
+
+        @Internal
+        Property<TransformExecutions> getExecutions();
     }
 
     @InputArtifact
@@ -121,11 +196,16 @@ public abstract class ExtraJavaModuleInfoTransform implements TransformAction<Ex
         Parameter parameters = getParameters();
         Map<String, ModuleSpec> moduleSpecs = parameters.getModuleSpecs().get();
         File originalJar = getInputArtifact().get().getAsFile();
+        if (parameters.getExecutions().isPresent()) {
+            parameters.getExecutions().get().executed(originalJar);
+        }
 
-        ModuleSpec moduleSpec = findModuleSpec(originalJar);
+        boolean routed = parameters.getRouted().get();
+        ModuleSpec moduleSpec = routed ? findRoutedModuleSpec(originalJar) : findModuleSpec(originalJar);
 
-        if (willBeMerged(originalJar, moduleSpecs.values())) { // No output if this Jar will be merged
-            return;
+        // Jars of components that are merged by coordinates are routed to a transform without output (see plugin)
+        if (!routed && willBeMerged(originalJar, moduleSpecs.values())) {
+            return; // No output if this Jar will be merged
         }
 
         checkInputExists(originalJar);
@@ -140,14 +220,15 @@ public abstract class ExtraJavaModuleInfoTransform implements TransformAction<Ex
             return;
         }
 
-        boolean realModule = isModule(originalJar);
+        JarFacts jarFacts = JarFacts.of(originalJar);
+        boolean realModule = jarFacts.isModule();
         if (moduleSpec instanceof ModuleInfo) {
             if (realModule && !((ModuleInfo) moduleSpec).patchRealModule) {
                 throw new RuntimeException(
                         "Patching of real modules must be explicitly enabled with 'patchRealModule()' or 'preserveExisting()'");
             }
             String definedName = moduleSpec.getModuleName();
-            String expectedName = autoModuleName(originalJar);
+            String expectedName = jarFacts.getAutomaticModuleName();
             if (expectedName != null && !definedName.equals(expectedName) && !moduleSpec.overrideModuleName) {
                 throw new RuntimeException(
                         "The name '" + definedName + "' is different than the Automatic-Module-Name '" + expectedName
@@ -165,14 +246,19 @@ public abstract class ExtraJavaModuleInfoTransform implements TransformAction<Ex
                                     + "'; turn off 'failOnModifiedDerivedModuleNames' or explicitly allow override via 'overrideModuleName()'");
                 }
             }
-            addModuleDescriptor(originalJar, getModuleJar(outputs, originalJar), (ModuleInfo) moduleSpec);
+            LargeJarRewrites.Permit permit = rewritePermit(originalJar, moduleSpec);
+            try {
+                addModuleDescriptor(originalJar, getModuleJar(outputs, originalJar), (ModuleInfo) moduleSpec);
+            } finally {
+                permit.close();
+            }
         } else if (moduleSpec instanceof AutomaticModuleName) {
             if (realModule) {
                 throw new RuntimeException(
                         "Patching of real modules must be explicitly enabled with 'patchRealModule()' and can only be done with 'module()'");
             }
             String definedName = moduleSpec.getModuleName();
-            String expectedName = autoModuleName(originalJar);
+            String expectedName = jarFacts.getAutomaticModuleName();
             if (expectedName != null
                     && (moduleSpec.getMergedJars().isEmpty() || !definedName.equals(expectedName))
                     && !moduleSpec.overrideModuleName) {
@@ -183,21 +269,30 @@ public abstract class ExtraJavaModuleInfoTransform implements TransformAction<Ex
                 throw new RuntimeException(
                         "Use of 'automaticModule()' is prohibited. Use 'module()' instead: " + originalJar.getName());
             }
-            addAutomaticModuleName(originalJar, getModuleJar(outputs, originalJar), (AutomaticModuleName) moduleSpec);
+            LargeJarRewrites.Permit permit = rewritePermit(originalJar, moduleSpec);
+            try {
+                addAutomaticModuleName(
+                        originalJar, getModuleJar(outputs, originalJar), (AutomaticModuleName) moduleSpec);
+            } finally {
+                permit.close();
+            }
         } else if (realModule) {
             outputs.file(originalJar);
-        } else if (autoModuleName(originalJar) != null) {
+        } else if (jarFacts.getAutomaticModuleName() != null) {
             if (parameters.getFailOnAutomaticModules().get()) {
-                throw new RuntimeException("Found an automatic module: " + autoModuleName(originalJar) + " ("
+                throw new RuntimeException("Found an automatic module: " + jarFacts.getAutomaticModuleName() + " ("
                         + originalJar.getName() + ")");
             }
             outputs.file(originalJar);
         } else if (parameters.getDeriveAutomaticModuleNamesFromFileNames().get()) {
             String automaticName = automaticModulNameFromFileName(originalJar);
-            addAutomaticModuleName(
-                    originalJar,
-                    getModuleJar(outputs, originalJar),
-                    new AutomaticModuleName(originalJar.getName(), automaticName));
+            AutomaticModuleName automaticModule = new AutomaticModuleName(originalJar.getName(), automaticName);
+            LargeJarRewrites.Permit permit = rewritePermit(originalJar, automaticModule);
+            try {
+                addAutomaticModuleName(originalJar, getModuleJar(outputs, originalJar), automaticModule);
+            } finally {
+                permit.close();
+            }
         } else if (parameters.getFailOnMissingModuleInfo().get()) {
             throw new RuntimeException("Not a module and no mapping defined: " + originalJar.getName());
         } else {
@@ -238,46 +333,44 @@ public abstract class ExtraJavaModuleInfoTransform implements TransformAction<Ex
         return null;
     }
 
+    /**
+     * The Jar was routed to this transform through the 'javaModuleSpec' attribute of its component. The transform
+     * cannot access the component of its input. Instead, the plugin passes the component of each routed Jar on the
+     * activated classpaths, as resolved by Gradle. The path of the Jar is not parsed.
+     */
+    private ModuleSpec findRoutedModuleSpec(File originalJar) {
+        String ga = getParameters().getRoutedArtifacts().get().get(originalJar.getAbsolutePath());
+        ModuleSpec moduleSpec = ga == null ? null : getParameters().getModuleSpecs().get().get(ga);
+        if (moduleSpec == null) {
+            throw new RuntimeException("Component of routed Jar not found: " + originalJar.getName()
+                    + "\n  The Jar is only known if it is on a classpath for which the plugin is activated.");
+        }
+        return moduleSpec;
+    }
+
     private boolean willBeMerged(File originalJar, Collection<ModuleSpec> modules) {
         return modules.stream().anyMatch(module -> module.getMergedJars().stream()
                 .anyMatch(toMerge -> gaCoordinatesFromFilePathMatch(originalJar.toPath(), toMerge)
                         || toMerge.equals(originalJar.getName())));
     }
 
-    private boolean isModule(File jar) {
-        try (JarInputStream inputStream = new JarInputStream(Files.newInputStream(jar.toPath()))) {
-            boolean isMultiReleaseJar = containsMultiReleaseJarEntry(inputStream);
-            ZipEntry next = inputStream.getNextEntry();
-            while (next != null) {
-                if ("module-info.class".equals(next.getName())) {
-                    return true;
-                }
-                if (isMultiReleaseJar
-                        && MODULE_INFO_CLASS_MRJAR_PATH.matcher(next.getName()).matches()) {
-                    return true;
-                }
-                next = inputStream.getNextEntry();
-            }
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+    /**
+     * Rewrites of Jars that are larger than 'largeJarSize' (including the Jars merged into them) wait for a permit
+     * of the shared {@link LargeJarRewrites} service. Smaller Jars are rewritten right away.
+     */
+    private LargeJarRewrites.Permit rewritePermit(File originalJar, ModuleSpec moduleSpec) {
+        Parameter parameters = getParameters();
+        if (!parameters.getLargeJarRewrites().isPresent()) {
+            return LargeJarRewrites.Permit.NONE;
         }
-        return false;
-    }
-
-    private boolean containsMultiReleaseJarEntry(JarInputStream jarStream) {
-        Manifest manifest = jarStream.getManifest();
-        return manifest != null
-                && Boolean.parseBoolean(manifest.getMainAttributes().getValue("Multi-Release"));
-    }
-
-    @Nullable
-    private String autoModuleName(File jar) {
-        try (JarInputStream inputStream = new JarInputStream(Files.newInputStream(jar.toPath()))) {
-            Manifest manifest = inputStream.getManifest();
-            return manifest != null ? manifest.getMainAttributes().getValue("Automatic-Module-Name") : null;
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+        long size = originalJar.length();
+        for (File mergeJar : findMergeJars(moduleSpec)) {
+            size += mergeJar.length();
+        }
+        if (size <= parameters.getLargeJarSize().get()) {
+            return LargeJarRewrites.Permit.NONE;
         }
+        return parameters.getLargeJarRewrites().get().acquire();
     }
 
     private File getModuleJar(TransformOutputs outputs, File originalJar) {
@@ -293,19 +386,40 @@ public abstract class ExtraJavaModuleInfoTransform implements TransformAction<Ex
                 manifest.getMainAttributes().putValue("Manifest-Version", "1.0");
             }
             manifest.getMainAttributes().putValue("Automatic-Module-Name", automaticModule.getModuleName());
+            MultiReleaseSelection multiRelease = multiReleaseSelection(originalJar);
+            if (multiRelease.isActive()) {
+                manifest.getMainAttributes().remove(MULTI_RELEASE);
+            }
+            List<File> mergeJars = findMergeJars(automaticModule);
+            // service providers are only needed to merge the service provider files of the merged Jars
+            Map<String, Set<String>> providers = new LinkedHashMap<>();
+            if (!mergeJars.isEmpty()) {
+                scanCentralDirectory(originalJar, multiRelease, automaticModule, null, null, providers);
+                for (File mergeJar : mergeJars) {
+                    scanCentralDirectory(
+                            mergeJar, multiReleaseSelection(mergeJar), automaticModule, null, null, providers);
+                }
+            }
             try (JarOutputStream outputStream =
                     newJarOutputStream(Files.newOutputStream(moduleJar.toPath()), manifest)) {
-                Map<String, List<String>> providers = new LinkedHashMap<>();
-                Set<String> packages = new TreeSet<>();
-                copyAndExtractProviders(
-                        inputStream,
-                        outputStream,
-                        automaticModule.getRemovedPackages(),
-                        !automaticModule.getMergedJars().isEmpty(),
-                        providers,
-                        packages);
-                mergeJars(automaticModule, outputStream, providers, packages);
+                WrittenEntries writtenEntries = new WrittenEntries(automaticModule);
+                try (FlightRecorderEvent event =
+                        FlightRecorderEvent.begin(originalJar.getName(), specType(automaticModule), "copy")) {
+                    writtenEntries.startJar(originalJar.getName());
+                    copyJar(
+                            inputStream,
+                            outputStream,
+                            multiRelease,
+                            PackageMatcher.of(automaticModule.getRemovedPackages()),
+                            !mergeJars.isEmpty(),
+                            null,
+                            writtenEntries,
+                            event);
+                }
+                mergeJars(automaticModule, mergeJars, outputStream, providers, null, writtenEntries);
+                writtenEntries.report();
             }
+            reorderEntries(moduleJar);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -313,39 +427,134 @@ public abstract class ExtraJavaModuleInfoTransform implements TransformAction<Ex
 
     private void addModuleDescriptor(File originalJar, File moduleJar, ModuleInfo moduleInfo) {
         try (JarInputStream inputStream = new JarInputStream(Files.newInputStream(originalJar.toPath()))) {
+            Manifest manifest = inputStream.getManifest();
+            MultiReleaseSelection multiRelease = multiReleaseSelection(originalJar);
+            if (multiRelease.isActive() && manifest != null) {
+                manifest = new Manifest(manifest);
+                manifest.getMainAttributes().remove(MULTI_RELEASE);
+            }
+            List<File> mergeJars = findMergeJars(moduleInfo);
+
+            // Packages, service providers and an existing descriptor are known from the central directories
+            // (and the few entries in question) before the Jars are decompressed and copied.
+            Map<String, Set<String>> providers = new LinkedHashMap<>();
+            Set<String> packages = new TreeSet<>();
+            Set<String> allPackages = new TreeSet<>();
+            byte[] existingModuleInfo =
+                    scanCentralDirectory(originalJar, multiRelease, moduleInfo, packages, allPackages, providers);
+            for (File mergeJar : mergeJars) {
+                scanCentralDirectory(
+                        mergeJar, multiReleaseSelection(mergeJar), moduleInfo, packages, allPackages, providers);
+            }
+
             try (JarOutputStream outputStream =
-                    newJarOutputStream(Files.newOutputStream(moduleJar.toPath()), inputStream.getManifest())) {
-                Map<String, List<String>> providers = new LinkedHashMap<>();
-                Set<String> packages = new TreeSet<>();
-                byte[] existingModuleInfo = copyAndExtractProviders(
-                        inputStream,
-                        outputStream,
-                        moduleInfo.getRemovedPackages(),
-                        !moduleInfo.getMergedJars().isEmpty(),
-                        providers,
-                        packages);
-                mergeJars(moduleInfo, outputStream, providers, packages);
-                if (moduleInfo.exportAllPackages) {
-                    moduleInfo.exportAllPackagesExceptions.forEach(it -> packages.remove(packageToPath(it)));
-                } else {
-                    packages.clear();
+                    newJarOutputStream(Files.newOutputStream(moduleJar.toPath()), manifest)) {
+                // packages referenced in the bytecode, only collected if 'requires' are inferred from them
+                Set<String> referencedPackages = moduleInfo.requireAllReferencedModules ? new HashSet<>() : null;
+                if (referencedPackages == null) {
+                    // the descriptor is complete: write it first, before the body of the Jar is copied
+                    writeModuleInfo(
+                            originalJar,
+                            outputStream,
+                            moduleInfo,
+                            packages,
+                            allPackages,
+                            providers,
+                            Arrays.asList(Collections.emptyList(), Collections.emptyList()),
+                            existingModuleInfo);
+                }
+                WrittenEntries writtenEntries = new WrittenEntries(moduleInfo);
+                try (FlightRecorderEvent event =
+                        FlightRecorderEvent.begin(originalJar.getName(), specType(moduleInfo), "copy")) {
+                    writtenEntries.startJar(originalJar.getName());
+                    copyJar(
+                            inputStream,
+                            outputStream,
+                            multiRelease,
+                            PackageMatcher.of(moduleInfo.getRemovedPackages()),
+                            !mergeJars.isEmpty(),
+                            referencedPackages,
+                            writtenEntries,
+                            event);
+                }
+                mergeJars(moduleInfo, mergeJars, outputStream, providers, referencedPackages, writtenEntries);
+                writtenEntries.report();
+                if (referencedPackages != null) {
+                    writeModuleInfo(
+                            originalJar,
+                            outputStream,
+                            moduleInfo,
+                            packages,
+                            allPackages,
+                            providers,
+                            requiresFromBytecode(moduleInfo, referencedPackages, packages, allPackages),
+                            existingModuleInfo);
                 }
-                outputStream.putNextEntry(newReproducibleEntry("module-info.class"));
-                outputStream.write(addModuleInfo(
-                        moduleInfo,
-                        providers,
-                        versionFromFilePath(originalJar.toPath()),
-                        packages,
-                        moduleInfo.getRemovedPackages(),
-                        moduleInfo.ignoreServiceProviders,
-                        existingModuleInfo));
-                outputStream.closeEntry();
             }
+            reorderEntries(moduleJar);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
+    private void writeModuleInfo(
+            File originalJar,
+            JarOutputStream outputStream,
+            ModuleInfo moduleInfo,
+            Set<String> packages,
+            Set<String> allPackages,
+            Map<String, Set<String>> providers,
+            List<List<String>> requiresFromBytecode,
+            @Nullable byte[] existingModuleInfo)
+            throws IOException {
+        Set<String> autoExportedPackages = new TreeSet<>();
+        if (moduleInfo.exportAllPackages) {
+            PackageMatcher exceptions = PackageMatcher.of(moduleInfo.exportAllPackagesExceptions);
+            for (String packagePath : packages) {
+                if (!exceptions.matches(packagePath)) {
+                    autoExportedPackages.add(packagePath);
+                }
+            }
+        }
+        outputStream.putNextEntry(newReproducibleEntry("module-info.class"));
+        try (FlightRecorderEvent event =
+                FlightRecorderEvent.begin(originalJar.getName(), specType(moduleInfo), "module-info")) {
+            List<List<String>> requiresFromMetadata = requiresFromMetadata(moduleInfo);
+            EffectiveModuleDescriptor descriptor = new EffectiveModuleDescriptor(
+                    moduleInfo,
+                    versionFromFilePath(originalJar.toPath()),
+                    autoExportedPackages,
+                    allPackages,
+                    providers,
+                    requiresFromMetadata.get(0),
+                    requiresFromMetadata.get(1),
+                    requiresFromMetadata.get(2),
+                    requiresFromBytecode.get(0),
+                    requiresFromBytecode.get(1),
+                    existingModuleInfo);
+            byte[] moduleInfoClass =
+                    MODULE_INFO_CACHE.computeIfAbsent(descriptor, ExtraJavaModuleInfoTransform::addModuleInfo);
+            event.addEntry(moduleInfoClass.length);
+            outputStream.write(moduleInfoClass);
+        }
+        outputStream.closeEntry();
+    }
+
+    /**
+     * If a class load order is defined, move the classes that are loaded first to the beginning of the Jar.
+     */
+    private void reorderEntries(File moduleJar) {
+        RegularFile loadOrderFile = getParameters().getClassLoadOrder().getOrNull();
+        if (loadOrderFile != null) {
+            FlightRecorderEvent event = FlightRecorderEvent.begin(moduleJar.getName(), "none", "reorder");
+            try {
+                ClassLoadOrder.of(loadOrderFile.getAsFile()).reorder(moduleJar);
+            } finally {
+                event.close();
+            }
+        }
+    }
+
     private JarOutputStream newJarOutputStream(OutputStream out, @Nullable Manifest manifest) throws IOException {
         JarOutputStream jar = new JarOutputStream(out);
         if (manifest != null) {
@@ -357,62 +566,166 @@ public abstract class ExtraJavaModuleInfoTransform implements TransformAction<Ex
         return jar;
     }
 
+    /**
+     * Collect the packages and service providers of a Jar from the entry names in its central directory.
+     * Only the service provider files and an existing 'module-info.class' are decompressed.
+     *
+     * @param packages packages that contain classes, or null if packages are not needed
+     * @param allPackages packages that contain classes or resources, or null if packages are not needed
+     * @return the content of the 'module-info.class' of the Jar, if it has one
+     */
     @Nullable
-    private byte[] copyAndExtractProviders(
-            JarInputStream inputStream,
-            JarOutputStream outputStream,
-            List<String> removedPackages,
-            boolean willMergeJars,
-            Map<String, List<String>> providers,
-            Set<String> packages)
-            throws IOException {
-        JarEntry jarEntry = inputStream.getNextJarEntry();
+    private byte[] scanCentralDirectory(
+            File jar,
+            MultiReleaseSelection multiRelease,
+            ModuleSpec moduleSpec,
+            @Nullable Set<String> packages,
+            @Nullable Set<String> allPackages,
+            Map<String, Set<String>> providers) {
         byte[] existingModuleInfo = null;
-        while (jarEntry != null) {
-            byte[] content = readAllBytes(inputStream);
-            String entryName = jarEntry.getName();
-            boolean isFileInServicesFolder = entryName.startsWith(SERVICES_PREFIX)
-                    && !entryName.equals(SERVICES_PREFIX)
-                    && !entryName.substring(SERVICES_PREFIX.length()).contains("/"); // ignore files in sub-folders
-            if (isFileInServicesFolder) {
-                String key = entryName.substring(SERVICES_PREFIX.length());
-                if (!providers.containsKey(key)) {
-                    providers.put(key, new ArrayList<>());
+        PackageMatcher removedPackages = PackageMatcher.of(moduleSpec.getRemovedPackages());
+        try (FlightRecorderEvent event = FlightRecorderEvent.begin(jar.getName(), specType(moduleSpec), "scan");
+                ZipFile zipFile = new ZipFile(jar)) {
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                String entryName = multiRelease.entryName(entry.getName());
+                if (entryName == null) {
+                    continue; // the entry is dropped
                 }
-                providers.get(key).addAll(extractImplementations(content));
-            }
-            if (isModuleInfoClass(entryName)) {
-                existingModuleInfo = content;
-            } else if (!JAR_SIGNATURE_PATH.matcher(entryName).matches() && !"META-INF/MANIFEST.MF".equals(entryName)) {
-                if (!willMergeJars || !isFileInServicesFolder) { // service provider files will be merged later
-                    Matcher mrJarMatcher = MRJAR_VERSIONS_PATH.matcher(entryName);
-                    int i = entryName.lastIndexOf("/");
-                    String packagePath =
-                            i > 0 ? mrJarMatcher.matches() ? mrJarMatcher.group(1) : entryName.substring(0, i) : "";
-
-                    if (!removedPackages.contains(pathToPackage(packagePath))) {
-                        if (entryName.endsWith(".class") && !packagePath.isEmpty()) {
+                event.addEntry(Math.max(entry.getSize(), 0));
+                JarEntryClassifier.Kind kind = JarEntryClassifier.kind(entryName);
+                if (kind == JarEntryClassifier.Kind.SERVICE_PROVIDER) {
+                    String key = entryName.substring(SERVICES_PREFIX.length());
+                    // the same implementation may be listed in several of the merged Jars
+                    providers
+                            .computeIfAbsent(key, k -> new LinkedHashSet<>())
+                            .addAll(extractImplementations(readEntry(zipFile, entry)));
+                } else if (packages == null || allPackages == null) {
+                    continue;
+                } else if (kind == JarEntryClassifier.Kind.MODULE_INFO) {
+                    existingModuleInfo = readEntry(zipFile, entry);
+                } else if (kind == JarEntryClassifier.Kind.CLASS || kind == JarEntryClassifier.Kind.RESOURCE) {
+                    String packagePath = packagePath(entryName);
+                    if (!packagePath.isEmpty()
+                            && !removedPackages.matches(packagePath)) {
+                        if (kind == JarEntryClassifier.Kind.CLASS) {
                             packages.add(packagePath);
                         }
-
-                        try {
-                            jarEntry.setCompressedSize(-1);
-                            outputStream.putNextEntry(jarEntry);
-                            outputStream.write(content);
-                            outputStream.closeEntry();
-                        } catch (ZipException e) {
-                            if (!e.getMessage().startsWith("duplicate entry:")) {
-                                throw new RuntimeException(e);
-                            }
+                        // like the JDK, consider folders with resources as packages if they have a valid package name
+                        if (!entry.isDirectory() && isPackagePath(packagePath)) {
+                            allPackages.add(packagePath);
                         }
                     }
                 }
             }
-            jarEntry = inputStream.getNextJarEntry();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
         }
         return existingModuleInfo;
     }
 
+    private byte[] readEntry(ZipFile zipFile, ZipEntry entry) throws IOException {
+        try (InputStream inputStream = zipFile.getInputStream(entry)) {
+            return readAllBytes(inputStream);
+        }
+    }
+
+    /**
+     * @return the package of the entry in the form of a path, or an empty string for entries in the root folder
+     */
+    private static String packagePath(String entryName) {
+        return entryName.substring(
+                JarEntryClassifier.packageStart(entryName), JarEntryClassifier.packageEnd(entryName));
+    }
+
+    private void copyJar(
+            JarInputStream inputStream,
+            JarOutputStream outputStream,
+            MultiReleaseSelection multiRelease,
+            PackageMatcher removedPackages,
+            boolean willMergeJars,
+            @Nullable Set<String> referencedPackages,
+            WrittenEntries writtenEntries,
+            FlightRecorderEvent event)
+            throws IOException {
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
+        JarEntry jarEntry = inputStream.getNextJarEntry();
+        while (jarEntry != null) {
+            String entryName = multiRelease.entryName(jarEntry.getName());
+            if (entryName != null) { // otherwise, the entry is dropped
+                event.addEntry(copyEntry(
+                        renamed(jarEntry, entryName),
+                        inputStream,
+                        outputStream,
+                        removedPackages,
+                        willMergeJars,
+                        referencedPackages,
+                        writtenEntries,
+                        buffer));
+            }
+            jarEntry = inputStream.getNextJarEntry();
+        }
+    }
+
+    /**
+     * Write one entry to the output Jar. The content is streamed in chunks and its digest is computed on the way,
+     * so that the memory used does not depend on the size of the entry. Only the content of classes is read
+     * completely, if 'referencedPackages' is not null to collect the packages referenced by the class.
+     *
+     * @return the number of bytes read from the entry
+     */
+    private long copyEntry(
+            JarEntry jarEntry,
+            InputStream content,
+            JarOutputStream outputStream,
+            PackageMatcher removedPackages,
+            boolean willMergeJars,
+            @Nullable Set<String> referencedPackages,
+            WrittenEntries writtenEntries,
+            byte[] buffer)
+            throws IOException {
+        String entryName = jarEntry.getName();
+        JarEntryClassifier.Kind kind = JarEntryClassifier.kind(entryName);
+        if (kind == JarEntryClassifier.Kind.MODULE_INFO
+                || kind == JarEntryClassifier.Kind.SIGNATURE
+                || kind == JarEntryClassifier.Kind.MANIFEST) {
+            return 0;
+        }
+        if (willMergeJars && kind == JarEntryClassifier.Kind.SERVICE_PROVIDER) {
+            return 0; // service provider files will be merged later
+        }
+        if (removedPackages.matchesEntry(entryName)) {
+            return 0;
+        }
+        // duplicates are not written, but their digest is needed to apply the duplicate entry policy
+        boolean write = !writtenEntries.contains(entryName);
+        if (write && referencedPackages != null && kind == JarEntryClassifier.Kind.CLASS) {
+            byte[] classContent = readAllBytes(content);
+            ReferencedPackages.collect(classContent, referencedPackages);
+            content = new ByteArrayInputStream(classContent);
+        }
+        if (write) {
+            jarEntry.setCompressedSize(-1);
+            outputStream.putNextEntry(jarEntry);
+        }
+        MessageDigest digest = writtenEntries.digest();
+        long size = 0;
+        int read;
+        while ((read = content.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+            if (write) {
+                outputStream.write(buffer, 0, read);
+            }
+            size += read;
+        }
+        if (write) {
+            outputStream.closeEntry();
+        }
+        writtenEntries.add(entryName, new EntryContent(size, digest.digest()));
+        return size;
+    }
+
     private List<String> extractImplementations(byte[] content) {
         return new BufferedReader(new InputStreamReader(new ByteArrayInputStream(content), StandardCharsets.UTF_8))
                 .lines()
@@ -423,35 +736,30 @@ public abstract class ExtraJavaModuleInfoTransform implements TransformAction<Ex
                 .collect(Collectors.toList());
     }
 
-    private byte[] addModuleInfo(
-            ModuleInfo moduleInfo,
-            Map<String, List<String>> providers,
-            @Nullable String version,
-            Set<String> autoExportedPackages,
-            List<String> removedPackages,
-            Map<String, Set<String>> ignoreServiceProviders,
-            @Nullable byte[] existingModuleInfo) {
-        ClassReader classReader =
-                moduleInfo.preserveExisting && existingModuleInfo != null ? new ClassReader(existingModuleInfo) : null;
+    private static byte[] addModuleInfo(EffectiveModuleDescriptor descriptor) {
+        ClassReader classReader = descriptor.existingModuleInfo != null
+                ? new ClassReader(descriptor.existingModuleInfo)
+                : null;
         ClassWriter classWriter = new ClassWriter(classReader, 0);
 
         if (classReader == null) {
-            int openModule = moduleInfo.openModule ? Opcodes.ACC_OPEN : 0;
-            String moduleVersion = moduleInfo.getModuleVersion() == null ? version : moduleInfo.getModuleVersion();
+            int openModule = descriptor.openModule ? Opcodes.ACC_OPEN : 0;
 
             classWriter.visit(Opcodes.V9, Opcodes.ACC_MODULE, "module-info", null, null, null);
             ModuleVisitor moduleVisitor =
-                    classWriter.visitModule(moduleInfo.getModuleName(), openModule, moduleVersion);
+                    classWriter.visitModule(descriptor.moduleName, openModule, descriptor.moduleVersion);
             moduleVisitor.visitRequire("java.base", 0, null);
-            addModuleInfoEntries(moduleInfo, providers, autoExportedPackages, moduleVisitor);
+            addPackages(descriptor, moduleVisitor, Collections.emptySet());
+            addModuleInfoEntries(descriptor, moduleVisitor);
             moduleVisitor.visitEnd();
             classWriter.visitEnd();
         } else {
+            PackageMatcher removedPackages = PackageMatcher.of(descriptor.removedPackages);
+            Set<String> visitedPackages = new HashSet<>();
+            Map<String, Set<String>> ignoreServiceProviders = descriptor.ignoreServiceProviders;
             Set<String> explicitlyHandledPackage = new HashSet<>();
-            explicitlyHandledPackage.addAll(moduleInfo.exports.keySet());
-            explicitlyHandledPackage.addAll(autoExportedPackages);
-            explicitlyHandledPackage.addAll(removedPackages);
-            Map<String, Set<String>> additionalProviders = moduleInfo.getProviders();
+            descriptor.exports.forEach(e -> explicitlyHandledPackage.add(e.getKey()));
+            explicitlyHandledPackage.addAll(descriptor.autoExportedPackages);
 
             ClassVisitor classVisitor = new ClassVisitor(Opcodes.ASM9, classWriter) {
                 @Override
@@ -461,14 +769,15 @@ public abstract class ExtraJavaModuleInfoTransform implements TransformAction<Ex
 
                         @Override
                         public void visitPackage(String packaze) {
-                            if (!removedPackages.contains(pathToPackage(packaze))) {
+                            if (!removedPackages.matches(packaze) && visitedPackages.add(packaze)) {
                                 mv.visitPackage(packaze);
                             }
                         }
 
                         @Override
                         public void visitExport(String packaze, int access, String... modules) {
-                            if (!explicitlyHandledPackage.contains(pathToPackage(packaze))) {
+                            if (!explicitlyHandledPackage.contains(pathToPackage(packaze))
+                                    && !removedPackages.matches(packaze)) {
                                 mv.visitExport(packaze, access, modules);
                             }
                         }
@@ -477,7 +786,7 @@ public abstract class ExtraJavaModuleInfoTransform implements TransformAction<Ex
                         public void visitUse(String service) {
                             String packaze = service.substring(0, service.lastIndexOf("/"));
                             // if package is removed, also remove 'use' directives based on the package
-                            if (!removedPackages.contains(pathToPackage(packaze))) {
+                            if (!removedPackages.matches(packaze)) {
                                 mv.visitUse(service);
                             }
                         }
@@ -496,7 +805,8 @@ public abstract class ExtraJavaModuleInfoTransform implements TransformAction<Ex
 
                         @Override
                         public void visitEnd() {
-                            addModuleInfoEntries(moduleInfo, Collections.emptyMap(), autoExportedPackages, mv);
+                            addPackages(descriptor, mv, visitedPackages);
+                            addModuleInfoEntries(descriptor, mv);
                             mv.visitEnd();
                         }
                     };
@@ -525,158 +835,271 @@ public abstract class ExtraJavaModuleInfoTransform implements TransformAction<Ex
         return path.replace('/', '.');
     }
 
-    private void addModuleInfoEntries(
-            ModuleInfo moduleInfo,
-            Map<String, List<String>> providers,
-            Set<String> autoExportedPackages,
-            ModuleVisitor moduleVisitor) {
-        for (String packageName : autoExportedPackages) {
+    /**
+     * Add the 'ModulePackages' attribute, so that the JDK does not need to scan the Jar to find the packages.
+     */
+    private static void addPackages(
+            EffectiveModuleDescriptor descriptor, ModuleVisitor moduleVisitor, Set<String> alreadyVisited) {
+        for (String packagePath : descriptor.packages) {
+            if (!alreadyVisited.contains(packagePath)) {
+                moduleVisitor.visitPackage(packagePath);
+            }
+        }
+    }
+
+    private static void addModuleInfoEntries(EffectiveModuleDescriptor descriptor, ModuleVisitor moduleVisitor) {
+        for (String packageName : descriptor.autoExportedPackages) {
             moduleVisitor.visitExport(packageName, 0);
         }
-        for (Map.Entry<String, Set<String>> entry : moduleInfo.exports.entrySet()) {
-            String packageName = entry.getKey();
-            Set<String> modules = entry.getValue();
-            moduleVisitor.visitExport(packageToPath(packageName), 0, modules.toArray(new String[0]));
+        for (Map.Entry<String, List<String>> entry : descriptor.exports) {
+            moduleVisitor.visitExport(packageToPath(entry.getKey()), 0, entry.getValue().toArray(new String[0]));
         }
-
-        for (Map.Entry<String, Set<String>> entry : moduleInfo.opens.entrySet()) {
-            String packageName = entry.getKey();
-            Set<String> modules = entry.getValue();
-            moduleVisitor.visitOpen(packageToPath(packageName), 0, modules.toArray(new String[0]));
+        for (Map.Entry<String, List<String>> entry : descriptor.opens) {
+            moduleVisitor.visitOpen(packageToPath(entry.getKey()), 0, entry.getValue().toArray(new String[0]));
         }
 
-        if (moduleInfo.requireAllDefinedDependencies) {
-            String identifier = moduleInfo.getIdentifier();
-            PublishedMetadata requires =
-                    getParameters().getRequiresFromMetadata().get().get(identifier);
-
-            if (requires == null) {
-                throw new RuntimeException("[requires directives from metadata] " + "Cannot find dependencies for '"
-                        + moduleInfo.getModuleName() + "'. " + "Are '"
-                        + moduleInfo.getIdentifier() + "' the correct component coordinates?");
-            }
-            if (requires.getErrorMessage() != null) {
-                throw new RuntimeException("[requires directives from metadata] " + "Cannot read metadata for '"
-                        + moduleInfo.getModuleName() + "': " + requires.getErrorMessage());
-            }
-
-            for (String ga : requires.getRequires()) {
-                String depModuleName = gaToModuleName(ga);
-                moduleVisitor.visitRequire(depModuleName, 0, null);
-            }
-            for (String ga : requires.getRequiresTransitive()) {
-                String depModuleName = gaToModuleName(ga);
-                moduleVisitor.visitRequire(depModuleName, Opcodes.ACC_TRANSITIVE, null);
-            }
-            for (String ga : requires.getRequiresStaticTransitive()) {
-                String depModuleName = gaToModuleName(ga);
-                moduleVisitor.visitRequire(depModuleName, Opcodes.ACC_STATIC_PHASE | Opcodes.ACC_TRANSITIVE, null);
-            }
+        for (String requireName : descriptor.requiresFromMetadata) {
+            moduleVisitor.visitRequire(requireName, 0, null);
+        }
+        for (String requireName : descriptor.requiresTransitiveFromMetadata) {
+            moduleVisitor.visitRequire(requireName, Opcodes.ACC_TRANSITIVE, null);
+        }
+        for (String requireName : descriptor.requiresStaticTransitiveFromMetadata) {
+            moduleVisitor.visitRequire(requireName, Opcodes.ACC_STATIC_PHASE | Opcodes.ACC_TRANSITIVE, null);
+        }
+        for (String requireName : descriptor.requiresFromBytecode) {
+            moduleVisitor.visitRequire(requireName, 0, null);
+        }
+        for (String requireName : descriptor.requiresStaticFromBytecode) {
+            moduleVisitor.visitRequire(requireName, Opcodes.ACC_STATIC_PHASE, null);
         }
 
-        for (String requireName : moduleInfo.requires) {
+        for (String requireName : descriptor.requires) {
             moduleVisitor.visitRequire(requireName, 0, null);
         }
-        for (String requireName : moduleInfo.requiresTransitive) {
+        for (String requireName : descriptor.requiresTransitive) {
             moduleVisitor.visitRequire(requireName, Opcodes.ACC_TRANSITIVE, null);
         }
-        for (String requireName : moduleInfo.requiresStatic) {
+        for (String requireName : descriptor.requiresStatic) {
             moduleVisitor.visitRequire(requireName, Opcodes.ACC_STATIC_PHASE, null);
         }
-        for (String requireName : moduleInfo.requiresStaticTransitive) {
+        for (String requireName : descriptor.requiresStaticTransitive) {
             moduleVisitor.visitRequire(requireName, Opcodes.ACC_STATIC_PHASE | Opcodes.ACC_TRANSITIVE, null);
         }
-        for (String usesName : moduleInfo.uses) {
+        for (String usesName : descriptor.uses) {
             moduleVisitor.visitUse(packageToPath(usesName));
         }
-        for (Map.Entry<String, List<String>> entry : providers.entrySet()) {
-            String name = entry.getKey();
-            Set<String> skipSet = moduleInfo.ignoreServiceProviders.get(name);
-            Set<String> implementations = new LinkedHashSet<>(entry.getValue());
-            if (skipSet != null) {
-                if (skipSet.isEmpty()) {
-                    implementations.clear(); // Skip altogether
-                } else {
-                    implementations.removeAll(skipSet); // Skip some
-                }
+        for (Map.Entry<String, List<String>> provider : descriptor.providers) {
+            visitProvide(moduleVisitor, provider);
+        }
+        for (Map.Entry<String, List<String>> provider : descriptor.additionalProviders) {
+            if (!provider.getValue().isEmpty()) {
+                visitProvide(moduleVisitor, provider);
             }
-            if (!implementations.isEmpty()) {
-                moduleVisitor.visitProvide(
-                        packageToPath(name),
-                        implementations.stream()
-                                .map(ExtraJavaModuleInfoTransform::packageToPath)
-                                .toArray(String[]::new));
+        }
+    }
+
+    private static void visitProvide(ModuleVisitor moduleVisitor, Map.Entry<String, List<String>> provider) {
+        moduleVisitor.visitProvide(
+                packageToPath(provider.getKey()),
+                provider.getValue().stream()
+                        .map(ExtraJavaModuleInfoTransform::packageToPath)
+                        .toArray(String[]::new));
+    }
+
+    /**
+     * Resolve the module names for the 'requires' directives derived from the dependencies of the component.
+     *
+     * @return three lists: 'requires', 'requires transitive' and 'requires static transitive'
+     */
+    private List<List<String>> requiresFromMetadata(ModuleInfo moduleInfo) {
+        if (!moduleInfo.requireAllDefinedDependencies) {
+            return Arrays.asList(Collections.emptyList(), Collections.emptyList(), Collections.emptyList());
+        }
+        String identifier = moduleInfo.getIdentifier();
+        PublishedMetadata requires = getParameters().getRequiresFromMetadata().get().get(identifier);
+
+        if (requires == null) {
+            throw new RuntimeException("[requires directives from metadata] " + "Cannot find dependencies for '"
+                    + moduleInfo.getModuleName() + "'. " + "Are '"
+                    + moduleInfo.getIdentifier() + "' the correct component coordinates?");
+        }
+        if (requires.getErrorMessage() != null) {
+            throw new RuntimeException("[requires directives from metadata] " + "Cannot read metadata for '"
+                    + moduleInfo.getModuleName() + "': " + requires.getErrorMessage());
+        }
+        return Arrays.asList(
+                requires.getRequires().stream().map(this::gaToModuleName).collect(Collectors.toList()),
+                requires.getRequiresTransitive().stream()
+                        .map(this::gaToModuleName)
+                        .collect(Collectors.toList()),
+                requires.getRequiresStaticTransitive().stream()
+                        .map(this::gaToModuleName)
+                        .collect(Collectors.toList()));
+    }
+
+    /**
+     * Find the modules that contain the packages referenced in the bytecode of the Jar. Modules found on the
+     * runtime classpath become 'requires', modules only found on the compile classpath become 'requires static'.
+     * Packages that are not found in any module are ignored.
+     *
+     * @return two lists: 'requires' and 'requires static'
+     */
+    private List<List<String>> requiresFromBytecode(
+            ModuleInfo moduleInfo, Set<String> referencedPackages, Set<String> packages, Set<String> allPackages) {
+        Parameter parameters = getParameters();
+        Collection<ModuleSpec> moduleSpecs = parameters.getModuleSpecs().get().values();
+        File javaHome = parameters.getPlatformHome().isPresent()
+                ? parameters.getPlatformHome().get().getAsFile()
+                : new File(System.getProperty("java.home"));
+        ModulePackageIndex runtimeIndex = ModulePackageIndex.of(
+                parameters.getRuntimeClasspathIds().get(),
+                toFiles(parameters.getRuntimeClasspathJars().get()),
+                moduleSpecs,
+                javaHome);
+        ModulePackageIndex compileIndex = ModulePackageIndex.of(
+                parameters.getCompileClasspathIds().get(),
+                toFiles(parameters.getCompileClasspathJars().get()),
+                moduleSpecs,
+                javaHome);
+
+        Set<String> alreadyRequired = new HashSet<>();
+        alreadyRequired.add(moduleInfo.getModuleName());
+        alreadyRequired.addAll(moduleInfo.requires);
+        alreadyRequired.addAll(moduleInfo.requiresTransitive);
+        alreadyRequired.addAll(moduleInfo.requiresStatic);
+        alreadyRequired.addAll(moduleInfo.requiresStaticTransitive);
+        requiresFromMetadata(moduleInfo).forEach(alreadyRequired::addAll);
+
+        Set<String> requires = new TreeSet<>();
+        Set<String> requiresStatic = new TreeSet<>();
+        for (String packagePath : referencedPackages) {
+            if (packages.contains(packagePath) || allPackages.contains(packagePath)) {
+                continue;
+            }
+            String runtimeModule = runtimeIndex.moduleFor(packagePath);
+            if (runtimeModule != null) {
+                requires.add(runtimeModule);
+            } else {
+                String compileModule = compileIndex.moduleFor(packagePath);
+                if (compileModule != null) {
+                    requiresStatic.add(compileModule);
+                }
             }
         }
-        for (Map.Entry<String, Set<String>> provider : moduleInfo.getProviders().entrySet()) {
-            if (!provider.getValue().isEmpty()) {
-                moduleVisitor.visitProvide(
-                        packageToPath(provider.getKey()),
-                        provider.getValue().stream()
-                                .map(ExtraJavaModuleInfoTransform::packageToPath)
-                                .toArray(String[]::new));
+        requires.removeAll(alreadyRequired);
+        requiresStatic.removeAll(alreadyRequired);
+        requiresStatic.removeAll(requires);
+        return Arrays.asList(new ArrayList<>(requires), new ArrayList<>(requiresStatic));
+    }
+
+    private static List<File> toFiles(List<RegularFile> regularFiles) {
+        return regularFiles.stream().map(RegularFile::getAsFile).collect(Collectors.toList());
+    }
+
+    /**
+     * @return the Jars to merge into the module, in the order of the 'mergeJar()' declarations
+     */
+    private List<File> findMergeJars(ModuleSpec moduleSpec) {
+        if (moduleSpec.getMergedJars().isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Map<String, File> mergeJarsById = new HashMap<>();
+        Map<String, File> mergeJarsByFileName = new HashMap<>();
+        List<String> ids = getParameters().getMergeJarIds().get();
+        List<RegularFile> jarFiles = getParameters().getMergeJars().get();
+        for (int i = 0; i < ids.size(); i++) {
+            File jarFile = jarFiles.get(i).getAsFile();
+            mergeJarsById.putIfAbsent(ids.get(i), jarFile);
+            mergeJarsByFileName.putIfAbsent(jarFile.getName(), jarFile);
+        }
+
+        List<File> mergeJars = new ArrayList<>();
+        for (String identifier : moduleSpec.getMergedJars()) {
+            // referenced by 'group:name' or by 'jar file name'
+            File mergeJar = mergeJarsById.get(identifier);
+            if (mergeJar == null) {
+                mergeJar = mergeJarsByFileName.get(identifier);
             }
+            if (mergeJar == null) {
+                throw new RuntimeException("Jar not found: " + identifier + " (merged into '"
+                        + moduleSpec.getModuleName()
+                        + "'); it is not part of the 'javaModulesMergeJars' Configuration");
+            }
+            mergeJars.add(mergeJar);
         }
+        return mergeJars;
     }
 
     private void mergeJars(
             ModuleSpec moduleSpec,
+            List<File> mergeJars,
             JarOutputStream outputStream,
-            Map<String, List<String>> providers,
-            Set<String> packages)
+            Map<String, Set<String>> providers,
+            @Nullable Set<String> referencedPackages,
+            WrittenEntries writtenEntries)
             throws IOException {
-        if (moduleSpec.getMergedJars().isEmpty()) {
+        if (mergeJars.isEmpty()) {
             return;
         }
 
-        RegularFile mergeJarFile = null;
-        for (String identifier : moduleSpec.getMergedJars()) {
-            List<String> ids = getParameters().getMergeJarIds().get();
-            List<RegularFile> jarFiles = getParameters().getMergeJars().get();
-            for (int i = 0; i < ids.size(); i++) {
-                // referenced by 'group:version'
-                if (ids.get(i).equals(identifier)) {
-                    mergeJarFile = jarFiles.get(i);
-                    break;
-                }
-                // referenced by 'jar file name'
-                if (jarFiles.get(i).getAsFile().getName().equals(identifier)) {
-                    mergeJarFile = jarFiles.get(i);
-                    break;
-                }
-            }
-
-            if (mergeJarFile != null) {
-                try (JarInputStream toMergeInputStream = new JarInputStream(
-                        Files.newInputStream(mergeJarFile.getAsFile().toPath()))) {
-                    copyAndExtractProviders(
-                            toMergeInputStream,
-                            outputStream,
-                            moduleSpec.getRemovedPackages(),
-                            true,
-                            providers,
-                            packages);
-                }
-            } else {
-                throw new RuntimeException("Jar not found: " + identifier);
+        String specType = specType(moduleSpec);
+        PackageMatcher removedPackages = PackageMatcher.of(moduleSpec.getRemovedPackages());
+        // The Jars are streamed one after the other, in the order of the 'mergeJar()' declarations, so that the
+        // result is deterministic and the first of duplicated entries is kept. No Jar is held in memory.
+        // They are deliberately not read concurrently: compressing the output dominates and is sequential, reading
+        // ahead would hold decompressed entries in memory, and Gradle already runs transforms in parallel.
+        for (File mergeJar : mergeJars) {
+            writtenEntries.startJar(mergeJar.getName());
+            try (FlightRecorderEvent event = FlightRecorderEvent.begin(mergeJar.getName(), specType, "merge");
+                    JarInputStream inputStream = new JarInputStream(Files.newInputStream(mergeJar.toPath()))) {
+                copyJar(
+                        inputStream,
+                        outputStream,
+                        multiReleaseSelection(mergeJar),
+                        removedPackages,
+                        true,
+                        referencedPackages,
+                        writtenEntries,
+                        event);
             }
         }
 
         mergeServiceProviderFiles(outputStream, providers);
     }
 
-    private void mergeServiceProviderFiles(JarOutputStream outputStream, Map<String, List<String>> providers)
+    private void mergeServiceProviderFiles(JarOutputStream outputStream, Map<String, Set<String>> providers)
             throws IOException {
-        for (Map.Entry<String, List<String>> provider : providers.entrySet()) {
+        // The writer is not closed, as that would close the Jar; it is flushed before each entry is closed
+        Writer writer = new OutputStreamWriter(outputStream, StandardCharsets.UTF_8);
+        for (Map.Entry<String, Set<String>> provider : providers.entrySet()) {
             outputStream.putNextEntry(newReproducibleEntry(SERVICES_PREFIX + provider.getKey()));
             for (String implementation : provider.getValue()) {
-                outputStream.write(implementation.getBytes());
-                outputStream.write("\n".getBytes());
+                writer.write(implementation);
+                writer.write('\n');
             }
+            writer.flush();
             outputStream.closeEntry();
         }
     }
 
+    private MultiReleaseSelection multiReleaseSelection(File jar) {
+        return MultiReleaseSelection.of(jar, getParameters().getMultiReleaseTarget().getOrNull());
+    }
+
+    /**
+     * @return the entry itself, if the name is unchanged, or a copy with the new name (for flattened versioned entries)
+     */
+    private static JarEntry renamed(JarEntry jarEntry, String name) {
+        if (jarEntry.getName().equals(name)) {
+            return jarEntry;
+        }
+        JarEntry renamed = new JarEntry(name);
+        renamed.setTime(jarEntry.getTime());
+        return renamed;
+    }
+
     private JarEntry newReproducibleEntry(String name) {
         JarEntry jarEntry = new JarEntry(name);
         jarEntry.setTime(CONSTANT_TIME_FOR_ZIP_ENTRIES);
@@ -700,6 +1123,10 @@ public abstract class ExtraJavaModuleInfoTransform implements TransformAction<Ex
         if (moduleSpec != null) {
             return moduleSpec.getModuleName();
         }
+        String moduleName = getParameters().getModuleNames().get().get(ga);
+        if (moduleName != null) {
+            return moduleName;
+        }
         String moduleNameFromSharedMapping = moduleNameFromSharedMapping(ga);
         if (moduleNameFromSharedMapping != null) {
             return moduleNameFromSharedMapping;
@@ -737,8 +1164,101 @@ public abstract class ExtraJavaModuleInfoTransform implements TransformAction<Ex
         return null;
     }
 
-    private static boolean isModuleInfoClass(String jarEntryName) {
-        return "module-info.class".equals(jarEntryName)
-                || MODULE_INFO_CLASS_MRJAR_PATH.matcher(jarEntryName).matches();
+    private static String specType(ModuleSpec moduleSpec) {
+        return moduleSpec.getClass().getSimpleName();
+    }
+
+    /**
+     * The size and SHA-256 digest of an entry's content. Two entries are considered identical if both match.
+     */
+    private static final class EntryContent {
+        private final long size;
+        private final byte[] sha256;
+
+        EntryContent(long size, byte[] sha256) {
+            this.size = size;
+            this.sha256 = sha256;
+        }
+
+        boolean sameAs(EntryContent other) {
+            return size == other.size && MessageDigest.isEqual(sha256, other.sha256);
+        }
+    }
+
+    /**
+     * Keeps track of the entries written to a Module Jar to detect duplicates and apply the policies
+     * defined in the module spec. Duplicates to report are logged as one warning per Module Jar, when the
+     * transform runs.
+     */
+    private static final class WrittenEntries {
+        private final ModuleSpec moduleSpec;
+        private final MessageDigest digest;
+        private final Map<String, EntryContent> contents = new HashMap<>();
+        private final Map<String, String> sources = new HashMap<>();
+        private final List<String> reported = new ArrayList<>();
+        private String currentJar = "";
+
+        WrittenEntries(ModuleSpec moduleSpec) {
+            this.moduleSpec = moduleSpec;
+            try {
+                this.digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new RuntimeException(e); // every Java platform supports SHA-256
+            }
+        }
+
+        /**
+         * @return the digest to compute the content of the next entry with; it is reset by computing the result
+         */
+        MessageDigest digest() {
+            return digest;
+        }
+
+        void startJar(String jarName) {
+            this.currentJar = jarName;
+        }
+
+        boolean contains(String entryName) {
+            return contents.containsKey(entryName);
+        }
+
+        /**
+         * Record an entry with the size and digest of its content. If an entry with the same name was recorded
+         * before, the duplicate entry policy of the module spec is applied.
+         *
+         * @return true, if the entry has not been recorded before
+         */
+        boolean add(String entryName, EntryContent content) {
+            EntryContent existing = contents.putIfAbsent(entryName, content);
+            if (existing == null) {
+                sources.put(entryName, currentJar);
+                return true;
+            }
+            if (entryName.endsWith("/")) {
+                return false; // folders are the same in every Jar
+            }
+            boolean identical = existing.sameAs(content);
+            DuplicateEntryPolicy policy =
+                    identical ? moduleSpec.identicalDuplicateEntries : moduleSpec.conflictingDuplicateEntries;
+            String description = entryName + " (" + (identical ? "identical" : "different") + " content in "
+                    + sources.get(entryName) + " and " + currentJar + ")";
+            if (policy == DuplicateEntryPolicy.FAIL) {
+                throw new RuntimeException("Duplicate entry in '" + moduleSpec.getModuleName() + "': " + description);
+            }
+            if (policy == DuplicateEntryPolicy.REPORT) {
+                reported.add(description);
+            }
+            return false;
+        }
+
+        void report() {
+            if (!reported.isEmpty()) {
+                Logging.getLogger(ExtraJavaModuleInfoTransform.class)
+                        .warn(
+                                "Duplicate entries in '{}' (first entry kept):\n  {}",
+                                moduleSpec.getModuleName(),
+                                String.join("\n  ", reported));
+            }
+        }
     }
 }
@@ -34,6 +34,7 @@ public class ModuleInfo extends ModuleSpec {
 
     boolean exportAllPackages;
     boolean requireAllDefinedDependencies;
+    boolean requireAllReferencedModules;
     boolean patchRealModule;
     boolean preserveExisting;
 
@@ -144,7 +145,7 @@ public class ModuleInfo extends ModuleSpec {
 
     /**
      * Automatically export all packages of the Jar. Can be used instead of individual 'exports()' statements.
-     * @param exceptions A list of packages not to export
+     * @param exceptions A list of packages not to export ('.**' suffix: the package and all its sub-packages)
      */
     public void exportAllPackagesExcept(String... exceptions) {
         exportAllPackagesExcept(Arrays.asList(exceptions));
@@ -152,7 +153,7 @@ public class ModuleInfo extends ModuleSpec {
 
     /**
      * Automatically export all packages of the Jar. Can be used instead of individual 'exports()' statements.
-     * @param exceptions A list of packages not to export
+     * @param exceptions A list of packages not to export ('.**' suffix: the package and all its sub-packages)
      */
     public void exportAllPackagesExcept(List<String> exceptions) {
         this.exportAllPackages = true;
@@ -166,6 +167,15 @@ public class ModuleInfo extends ModuleSpec {
         this.requireAllDefinedDependencies = true;
     }
 
+    /**
+     * Automatically add 'requires' statements for all modules that contain packages referenced in the bytecode.
+     * Modules found on the runtime classpath are required, modules only found on the compile classpath are
+     * required as 'static'.
+     */
+    public void requireAllReferencedModules() {
+        this.requireAllReferencedModules = true;
+    }
+
     /**
      * Allow patching real (JARs with module-info.class) modules by overriding the existing module-info.class.
      */
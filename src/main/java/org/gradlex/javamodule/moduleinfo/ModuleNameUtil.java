@@ -56,6 +56,22 @@ class ModuleNameUtil {
         return name;
     }
 
+    /**
+     * @param path a package in the form of a path (segments separated by '/')
+     * @return true, if all segments are Java identifiers
+     */
+    static boolean isPackagePath(String path) {
+        int next;
+        int off = 0;
+        while ((next = path.indexOf('/', off)) != -1) {
+            if (!isJavaIdentifier(path.substring(off, next))) {
+                return false;
+            }
+            off = next + 1;
+        }
+        return isJavaIdentifier(path.substring(off));
+    }
+
     private static String cleanModuleName(String mn) {
         // replace non-alphanumeric
         mn = NON_ALPHANUM.matcher(mn).replaceAll(".");
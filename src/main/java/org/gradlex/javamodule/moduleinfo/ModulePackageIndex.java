@@ -0,0 +1,194 @@
+// SPDX-License-Identifier: Apache-2.0
+package org.gradlex.javamodule.moduleinfo;
+
+import static org.gradlex.javamodule.moduleinfo.FilePathToModuleCoordinates.gaCoordinatesFromFilePathMatch;
+import static org.gradlex.javamodule.moduleinfo.ModuleNameUtil.automaticModulNameFromFileName;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.gradlex.javamodule.moduleinfo.internal.BoundedCache;
+import org.gradlex.javamodule.moduleinfo.internal.JarFacts;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ModuleVisitor;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * Maps packages (in the form of paths) to the names of the modules that contain them. The index is built from
+ * the Jars of a classpath and the modules of a JDK - the one of the Java toolchain of the project.
+ * The module name of a Jar is taken from the module spec that targets the Jar (or that the Jar is merged into),
+ * its 'module-info.class', its 'Automatic-Module-Name' or its file name - in that order.
+ * An index is built once for the same Jars and specs, and then shared by all transforms that run in the same Gradle
+ * daemon.
+ */
+@NullMarked
+final class ModulePackageIndex {
+
+    // Indexes of classpaths, shared by all transforms running in the same Gradle daemon
+    private static final BoundedCache<String, ModulePackageIndex> CACHE = new BoundedCache<>(10);
+
+    // Packages of the modules of JDKs by the path of the JDK, shared by all transforms running in the same daemon
+    private static final BoundedCache<String, Map<String, String>> PLATFORM_PACKAGES = new BoundedCache<>(4);
+
+    private final Map<String, String> packageToModule = new HashMap<>();
+
+    private ModulePackageIndex() {}
+
+    /**
+     * @param ids the 'group:name' (or display name) for each of the Jars
+     * @param jars the Jars of a classpath
+     * @param moduleSpecs all module specs, which may define (new) names for the Jars
+     * @param javaHome the JDK that provides the platform modules
+     */
+    static ModulePackageIndex of(
+            List<String> ids, List<File> jars, Collection<ModuleSpec> moduleSpecs, File javaHome) {
+        StringBuilder key = new StringBuilder(javaHome.getAbsolutePath()).append('\n');
+        for (int i = 0; i < jars.size(); i++) {
+            File jar = jars.get(i);
+            key.append(ids.get(i)).append('|').append(jar.getAbsolutePath()).append('|');
+            key.append(jar.length()).append('|').append(jar.lastModified()).append('\n');
+        }
+        for (ModuleSpec spec : moduleSpecs) {
+            key.append(spec.getIdentifier()).append('|').append(spec.getClassifier()).append('|');
+            key.append(spec.getModuleName()).append('|').append(spec.getMergedJars()).append('\n');
+        }
+        return CACHE.computeIfAbsent(key.toString(), k -> build(ids, jars, moduleSpecs, javaHome));
+    }
+
+    private static ModulePackageIndex build(
+            List<String> ids, List<File> jars, Collection<ModuleSpec> moduleSpecs, File javaHome) {
+        ModulePackageIndex index = new ModulePackageIndex();
+        for (int i = 0; i < jars.size(); i++) {
+            File jar = jars.get(i);
+            if (!jar.isFile()) {
+                continue; // e.g. a folder of classes; it does not contribute packages
+            }
+            JarFacts facts = JarFacts.of(jar);
+            String moduleName = moduleNameFromSpec(ids.get(i), jar, moduleSpecs);
+            if (moduleName == null) {
+                moduleName = moduleNameFromJar(jar, facts);
+            }
+            if (moduleName != null) {
+                for (String packagePath : facts.getPackages()) {
+                    index.packageToModule.putIfAbsent(packagePath, moduleName);
+                }
+            }
+        }
+        PLATFORM_PACKAGES
+                .computeIfAbsent(javaHome.getAbsolutePath(), k -> platformPackages(javaHome))
+                .forEach(index.packageToModule::putIfAbsent);
+        return index;
+    }
+
+    @Nullable
+    String moduleFor(String packagePath) {
+        return packageToModule.get(packagePath);
+    }
+
+    @Nullable
+    private static String moduleNameFromSpec(String id, File jar, Collection<ModuleSpec> moduleSpecs) {
+        for (ModuleSpec spec : moduleSpecs) {
+            if (spec.getIdentifier().equals(id)
+                    || spec.getIdentifier().equals(jar.getName())
+                    || gaCoordinatesFromFilePathMatch(jar.toPath(), spec.getIdentifier(), spec.getClassifier())) {
+                return spec.getModuleName();
+            }
+        }
+        for (ModuleSpec spec : moduleSpecs) {
+            if (spec.getMergedJars().contains(id) || spec.getMergedJars().contains(jar.getName())) {
+                return spec.getModuleName();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The module name of a Jar that is not targeted by a spec: the name from the 'module-info.class', the
+     * 'Automatic-Module-Name' or the name derived from the file name - in that order.
+     */
+    @Nullable
+    private static String moduleNameFromJar(File jar, JarFacts facts) {
+        if (facts.getModuleName() != null) {
+            return facts.getModuleName();
+        }
+        if (facts.getAutomaticModuleName() != null) {
+            return facts.getAutomaticModuleName();
+        }
+        if (jar.getName().endsWith(".jar")) {
+            try {
+                return automaticModulNameFromFileName(jar);
+            } catch (IllegalArgumentException e) {
+                // no valid name can be derived; the Jar is not considered
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The packages of the modules of a JDK (except 'java.base', which is always required), read from the
+     * 'module-info.class' files in the 'jrt' file system of that JDK. The JDK does not need to be the one that runs
+     * the build. The 'jrt' file system is loaded from the 'jrt-fs.jar' of the JDK, so that this also works if the
+     * build runs on Java 8. A Java 8 JDK has no modules and hence no packages.
+     */
+    private static Map<String, String> platformPackages(File javaHome) {
+        File jrtFs = new File(javaHome, "lib/jrt-fs.jar");
+        if (!jrtFs.isFile()) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> result = new HashMap<>();
+        Map<String, String> env = Collections.singletonMap("java.home", javaHome.getAbsolutePath());
+        try (URLClassLoader loader = new URLClassLoader(new URL[] {jrtFs.toURI().toURL()});
+                FileSystem jrt = FileSystems.newFileSystem(URI.create("jrt:/"), env, loader);
+                DirectoryStream<Path> modules = Files.newDirectoryStream(jrt.getPath("/modules"))) {
+            for (Path module : modules) {
+                Path moduleInfo = module.resolve("module-info.class");
+                if (Files.isRegularFile(moduleInfo)) {
+                    collectPackages(Files.readAllBytes(moduleInfo), result);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            throw new RuntimeException("Cannot read the modules of the JDK: " + javaHome, e);
+        }
+        return result;
+    }
+
+    /**
+     * The 'ModulePackages' attribute of a 'module-info.class' in a JDK lists all packages of the module. Folders of
+     * the module that only contain other folders are not packages.
+     */
+    private static void collectPackages(byte[] moduleInfo, Map<String, String> packageToModule) {
+        new ClassReader(moduleInfo)
+                .accept(
+                        new ClassVisitor(Opcodes.ASM9) {
+                            @Override
+                            @Nullable
+                            public ModuleVisitor visitModule(String name, int access, @Nullable String version) {
+                                if ("java.base".equals(name)) {
+                                    return null;
+                                }
+                                return new ModuleVisitor(Opcodes.ASM9) {
+                                    @Override
+                                    public void visitPackage(String packagePath) {
+                                        packageToModule.putIfAbsent(packagePath, name);
+                                    }
+                                };
+                            }
+                        },
+                        ClassReader.SKIP_CODE);
+    }
+}
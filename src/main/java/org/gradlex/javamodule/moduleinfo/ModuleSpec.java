@@ -28,6 +28,8 @@ public abstract class ModuleSpec implements Serializable {
     private final List<String> mergedJars = new ArrayList<>();
 
     boolean overrideModuleName;
+    DuplicateEntryPolicy identicalDuplicateEntries = DuplicateEntryPolicy.KEEP_FIRST;
+    DuplicateEntryPolicy conflictingDuplicateEntries = DuplicateEntryPolicy.KEEP_FIRST;
 
     protected ModuleSpec(String identifier, String moduleName) {
         validateIdentifier(identifier);
@@ -66,7 +68,8 @@ public abstract class ModuleSpec implements Serializable {
     }
 
     /**
-     * @param packageName a package to remove from the Jar because it is a duplicate
+     * @param packageName a package to remove from the Jar because it is a duplicate;
+     *                    with a '.**' suffix, the package and all its sub-packages are removed
      */
     public void removePackage(String packageName) {
         removedPackages.add(packageName);
@@ -106,4 +109,18 @@ public abstract class ModuleSpec implements Serializable {
     public void overrideModuleName() {
         this.overrideModuleName = true;
     }
+
+    /**
+     * @param policy what to do with entries that exist more than once with the same content (default: KEEP_FIRST)
+     */
+    public void identicalDuplicateEntries(DuplicateEntryPolicy policy) {
+        this.identicalDuplicateEntries = policy;
+    }
+
+    /**
+     * @param policy what to do with entries that exist more than once with different content (default: KEEP_FIRST)
+     */
+    public void conflictingDuplicateEntries(DuplicateEntryPolicy policy) {
+        this.conflictingDuplicateEntries = policy;
+    }
 }
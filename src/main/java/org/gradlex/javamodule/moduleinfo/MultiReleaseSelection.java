@@ -0,0 +1,103 @@
+// SPDX-License-Identifier: Apache-2.0
+package org.gradlex.javamodule.moduleinfo;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import org.gradlex.javamodule.moduleinfo.internal.JarEntryClassifier;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Flattens a Multi-Release Jar for a target Java release: of all versions of an entry, only the one with
+ * the highest version that is not higher than the target is kept, and it is moved to the base path.
+ * The decision needs to know all entries upfront, which are read from the central directory of the Jar.
+ * Versioned entry names are parsed by {@link JarEntryClassifier}, without regular expressions.
+ */
+@NullMarked
+final class MultiReleaseSelection {
+
+    static final String VERSIONS_PREFIX = "META-INF/versions/";
+
+    private static final MultiReleaseSelection NONE = new MultiReleaseSelection(false, Collections.emptyMap());
+
+    private final boolean active;
+    private final Map<String, Integer> selectedVersions; // base path -> highest version <= target
+
+    private MultiReleaseSelection(boolean active, Map<String, Integer> selectedVersions) {
+        this.active = active;
+        this.selectedVersions = selectedVersions;
+    }
+
+    static MultiReleaseSelection of(File jar, @Nullable Integer targetRelease) {
+        if (targetRelease == null) {
+            return NONE;
+        }
+        try (JarFile jarFile = new JarFile(jar)) {
+            Manifest manifest = jarFile.getManifest();
+            if (manifest == null || !Boolean.parseBoolean(manifest.getMainAttributes().getValue("Multi-Release"))) {
+                return NONE;
+            }
+            Map<String, Integer> selectedVersions = new HashMap<>();
+            Enumeration<JarEntry> entries = jarFile.entries();
+            while (entries.hasMoreElements()) {
+                String entryName = entries.nextElement().getName();
+                int basePathStart = basePathStart(entryName);
+                if (basePathStart > 0) {
+                    int version = JarEntryClassifier.version(entryName);
+                    if (version <= targetRelease) {
+                        selectedVersions.merge(entryName.substring(basePathStart), version, Math::max);
+                    }
+                }
+            }
+            return new MultiReleaseSelection(true, selectedVersions);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * @return true, if this is a Multi-Release Jar that is flattened
+     */
+    boolean isActive() {
+        return active;
+    }
+
+    /**
+     * @param entryName name of the entry in the original Jar
+     * @return the name of the entry in the flattened Jar, or null if the entry is dropped
+     */
+    @Nullable
+    String entryName(String entryName) {
+        if (!active) {
+            return entryName;
+        }
+        if (entryName.startsWith(VERSIONS_PREFIX)) {
+            int basePathStart = basePathStart(entryName);
+            if (basePathStart > 0) {
+                String basePath = entryName.substring(basePathStart);
+                Integer selected = selectedVersions.get(basePath);
+                if (selected != null && selected == JarEntryClassifier.version(entryName)) {
+                    return basePath;
+                }
+            }
+            return null;
+        }
+        return selectedVersions.containsKey(entryName) ? null : entryName;
+    }
+
+    /**
+     * @return the start of the base path of a versioned entry ('META-INF/versions/N/base/path'), or 0 if the entry
+     *         is not versioned or has an empty base path
+     */
+    private static int basePathStart(String entryName) {
+        int versionedStart = JarEntryClassifier.versionedStart(entryName);
+        return versionedStart < entryName.length() ? versionedStart : 0;
+    }
+}
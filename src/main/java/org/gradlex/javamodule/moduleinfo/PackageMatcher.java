@@ -0,0 +1,124 @@
+// SPDX-License-Identifier: Apache-2.0
+package org.gradlex.javamodule.moduleinfo;
+
+import java.util.Arrays;
+import java.util.Collection;
+import org.gradlex.javamodule.moduleinfo.internal.JarEntryClassifier;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Matches packages against a set of package names, e.g. those of 'removePackage()'. A name ending with '.**'
+ * matches the package and all its sub-packages ('com.foo.internal.**').
+ * The names are converted to paths ('com/foo') once and compiled into a trie of characters. Packages are matched
+ * in their path form, as found in Jar entries and class files, in time linear to their length. A name ('com.foo')
+ * is not a path, and hence never matches: '.' is a valid character of a path, e.g. in 'com/foo.properties'.
+ */
+@NullMarked
+final class PackageMatcher {
+
+    private static final String SUB_PACKAGES = ".**";
+    private static final char SEPARATOR = '/';
+
+    static final PackageMatcher NONE = new PackageMatcher(new Node());
+
+    private final Node root;
+
+    private PackageMatcher(Node root) {
+        this.root = root;
+    }
+
+    static PackageMatcher of(Collection<String> packageNames) {
+        if (packageNames.isEmpty()) {
+            return NONE;
+        }
+        Node root = new Node();
+        for (String packageName : packageNames) {
+            boolean subPackages = packageName.endsWith(SUB_PACKAGES);
+            String name = subPackages
+                    ? packageName.substring(0, packageName.length() - SUB_PACKAGES.length())
+                    : packageName;
+            Node node = root;
+            for (int i = 0; i < name.length(); i++) {
+                char c = name.charAt(i);
+                node = node.childOrCreate(c == '.' ? SEPARATOR : c);
+            }
+            if (subPackages) {
+                node.subPackages = true;
+            } else {
+                node.exact = true;
+            }
+        }
+        return new PackageMatcher(root);
+    }
+
+    boolean isEmpty() {
+        return this == NONE;
+    }
+
+    /**
+     * @param packagePath a package path ('com/foo')
+     */
+    boolean matches(String packagePath) {
+        return matches(packagePath, 0, packagePath.length());
+    }
+
+    /**
+     * @param entryName the name of a Jar entry (e.g. 'com/foo/Bar.class'), which is matched by its package
+     *                  (see {@link JarEntryClassifier#packageStart(String)})
+     */
+    boolean matchesEntry(String entryName) {
+        return !isEmpty()
+                && matches(
+                        entryName,
+                        JarEntryClassifier.packageStart(entryName),
+                        JarEntryClassifier.packageEnd(entryName));
+    }
+
+    private boolean matches(String packagePath, int start, int end) {
+        if (end <= start) {
+            return false; // entry in the root folder, which is not a package
+        }
+        Node node = root;
+        for (int i = start; i < end; i++) {
+            char c = packagePath.charAt(i);
+            if (c == SEPARATOR && node.subPackages) {
+                return true;
+            }
+            node = node.child(c);
+            if (node == null) {
+                return false;
+            }
+        }
+        return node.exact || node.subPackages;
+    }
+
+    private static final class Node {
+        private char[] keys = new char[0];
+        private Node[] children = new Node[0];
+        boolean exact;
+        boolean subPackages;
+
+        @Nullable
+        Node child(char c) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] == c) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        Node childOrCreate(char c) {
+            Node child = child(c);
+            if (child == null) {
+                child = new Node();
+                keys = Arrays.copyOf(keys, keys.length + 1);
+                children = Arrays.copyOf(children, children.length + 1);
+                keys[keys.length - 1] = c;
+                children[children.length - 1] = child;
+            }
+            return child;
+        }
+    }
+}
@@ -12,9 +12,10 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
-import org.gradle.api.Project;
+import org.gradle.api.NamedDomainObjectProvider;
 import org.gradle.api.artifacts.Configuration;
 import org.gradle.api.artifacts.ConfigurationContainer;
+import org.gradle.api.artifacts.dsl.DependencyHandler;
 import org.gradle.api.artifacts.result.DependencyResult;
 import org.gradle.api.artifacts.result.ResolvedDependencyResult;
 import org.gradle.api.artifacts.result.UnresolvedDependencyResult;
@@ -25,10 +26,9 @@ import org.gradle.api.attributes.LibraryElements;
 import org.gradle.api.attributes.Usage;
 import org.gradle.api.attributes.java.TargetJvmEnvironment;
 import org.gradle.api.model.ObjectFactory;
-import org.gradle.api.provider.Provider;
-import org.gradle.api.tasks.SourceSet;
 import org.gradle.api.tasks.SourceSetContainer;
 import org.gradle.util.GradleVersion;
+import org.gradlex.javamodule.moduleinfo.internal.FlightRecorderEvent;
 import org.jspecify.annotations.NullMarked;
 import org.jspecify.annotations.Nullable;
 
@@ -36,7 +36,7 @@ import org.jspecify.annotations.Nullable;
 public class PublishedMetadata implements Serializable {
     private static final Attribute<String> CATEGORY_ATTRIBUTE_UNTYPED =
             Attribute.of(CATEGORY_ATTRIBUTE.getName(), String.class);
-    private static final String DEFAULT_VERSION_SOURCE_CONFIGURATION = "definedDependenciesVersions";
+    static final String DEFAULT_VERSION_SOURCE_CONFIGURATION = "definedDependenciesVersions";
 
     private final String gav;
     private final List<String> requires = new ArrayList<>();
@@ -46,13 +46,30 @@ public class PublishedMetadata implements Serializable {
     @Nullable
     private String errorMessage = null;
 
-    PublishedMetadata(String gav, Project project, ExtraJavaModuleInfoPluginExtension extension) {
+    /**
+     * @param gav coordinates of the component
+     * @param versionsSource the Configuration that provides the versions of the component and its dependencies
+     * @param configurations used to create a detached Configuration that resolves the component
+     * @param dependencies used to create the dependency to the component
+     * @param objects used to create the 'usage' attribute values
+     */
+    PublishedMetadata(
+            String gav,
+            Configuration versionsSource,
+            ConfigurationContainer configurations,
+            DependencyHandler dependencies,
+            ObjectFactory objects) {
         this.gav = gav;
 
-        List<String> compileDependencies =
-                componentVariant(extension.getVersionsProvidingConfiguration(), project, Usage.JAVA_API);
-        List<String> runtimeDependencies =
-                componentVariant(extension.getVersionsProvidingConfiguration(), project, Usage.JAVA_RUNTIME);
+        List<String> compileDependencies;
+        List<String> runtimeDependencies;
+        try (FlightRecorderEvent event = FlightRecorderEvent.begin(gav, "ModuleInfo", "metadata")) {
+            compileDependencies =
+                    componentVariant(versionsSource, configurations, dependencies, objects, Usage.JAVA_API);
+            runtimeDependencies =
+                    componentVariant(versionsSource, configurations, dependencies, objects, Usage.JAVA_RUNTIME);
+            event.setEntries(compileDependencies.size() + runtimeDependencies.size());
+        }
 
         Stream.concat(compileDependencies.stream(), runtimeDependencies.stream())
                 .distinct()
@@ -69,22 +86,13 @@ public class PublishedMetadata implements Serializable {
 
     @SuppressWarnings({"UnstableApiUsage", "unchecked"})
     private List<String> componentVariant(
-            Provider<String> versionsProvidingConfiguration, Project project, String usage) {
-        Configuration versionsSource;
-        if (versionsProvidingConfiguration.isPresent()) {
-            versionsSource = project.getConfigurations()
-                    .named(versionsProvidingConfiguration.get())
-                    .get();
-        } else {
-            // version provider is not configured, create on adhoc based on ALL classpaths of the project
-            versionsSource = maybeCreateDefaultVersionSourcConfiguration(
-                    project.getConfigurations(),
-                    project.getObjects(),
-                    project.getExtensions().findByType(SourceSetContainer.class));
-        }
-
-        Configuration singleComponentVariantResolver = project.getConfigurations()
-                .detachedConfiguration(project.getDependencies().create(gav));
+            Configuration versionsSource,
+            ConfigurationContainer configurations,
+            DependencyHandler dependencies,
+            ObjectFactory objects,
+            String usage) {
+        Configuration singleComponentVariantResolver =
+                configurations.detachedConfiguration(dependencies.create(gav));
         singleComponentVariantResolver.setCanBeConsumed(false);
         singleComponentVariantResolver.shouldResolveConsistentlyWith(versionsSource);
         versionsSource.getAttributes().keySet().forEach(a -> {
@@ -98,19 +106,23 @@ public class PublishedMetadata implements Serializable {
         });
         singleComponentVariantResolver
                 .getAttributes()
-                .attribute(USAGE_ATTRIBUTE, project.getObjects().named(Usage.class, usage));
+                .attribute(USAGE_ATTRIBUTE, objects.named(Usage.class, usage));
         return firstAndOnlyComponentDependencies(singleComponentVariantResolver);
     }
 
-    private Configuration maybeCreateDefaultVersionSourcConfiguration(
+    /**
+     * Registers the Configuration that provides the versions if no 'versionsProvidingConfiguration' is configured.
+     * It is based on ALL classpaths of the project. The Configuration is registered when the plugin is applied,
+     * but only created if it is used.
+     */
+    static NamedDomainObjectProvider<Configuration> registerDefaultVersionSourceConfiguration(
             ConfigurationContainer configurations, ObjectFactory objects, @Nullable SourceSetContainer sourceSets) {
         String name = DEFAULT_VERSION_SOURCE_CONFIGURATION;
-        Configuration existing = configurations.findByName(name);
-        if (existing != null) {
-            return existing;
+        if (configurations.getNames().contains(name)) {
+            return configurations.named(name);
         }
 
-        return configurations.create(name, c -> {
+        return configurations.register(name, c -> {
             c.setCanBeResolved(true);
             c.setCanBeConsumed(false);
             c.getAttributes().attribute(Usage.USAGE_ATTRIBUTE, objects.named(Usage.class, Usage.JAVA_RUNTIME));
@@ -128,7 +140,8 @@ public class PublishedMetadata implements Serializable {
             }
 
             if (sourceSets != null) {
-                for (SourceSet sourceSet : sourceSets) {
+                // also covers source sets that are added after the Configuration was created
+                sourceSets.configureEach(sourceSet -> {
                     Configuration implementation = configurations
                             .named(sourceSet.getImplementationConfigurationName())
                             .get();
@@ -142,7 +155,7 @@ public class PublishedMetadata implements Serializable {
                             .named(sourceSet.getAnnotationProcessorConfigurationName())
                             .get();
                     c.extendsFrom(implementation, compileOnly, runtimeOnly, annotationProcessor);
-                }
+                });
             }
         });
     }
@@ -0,0 +1,128 @@
+// SPDX-License-Identifier: Apache-2.0
+package org.gradlex.javamodule.moduleinfo;
+
+import java.util.Set;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+/**
+ * Collects the packages a class refers to. The class structure (super types, fields, methods, annotations)
+ * is visited without the code. References from the code are found in the constant pool (classes, member and
+ * method type descriptors).
+ */
+@NullMarked
+final class ReferencedPackages {
+
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+    private static final int CONSTANT_METHOD_TYPE = 16;
+
+    private ReferencedPackages() {}
+
+    static void collect(byte[] classFile, Set<String> packages) {
+        ClassReader classReader = new ClassReader(classFile);
+        char[] buffer = new char[classReader.getMaxStringLength()];
+        for (int i = 1; i < classReader.getItemCount(); i++) {
+            int offset = classReader.getItem(i);
+            if (offset == 0) {
+                continue; // second slot of a long or double constant
+            }
+            int tag = classReader.readByte(offset - 1);
+            if (tag == CONSTANT_CLASS) {
+                addInternalName(classReader.readUTF8(offset, buffer), packages);
+            } else if (tag == CONSTANT_NAME_AND_TYPE) {
+                addDescriptor(classReader.readUTF8(offset + 2, buffer), packages);
+            } else if (tag == CONSTANT_METHOD_TYPE) {
+                addDescriptor(classReader.readUTF8(offset, buffer), packages);
+            }
+        }
+        classReader.accept(
+                new ClassVisitor(Opcodes.ASM9) {
+                    @Override
+                    public void visit(
+                            int version,
+                            int access,
+                            String name,
+                            @Nullable String signature,
+                            @Nullable String superName,
+                            String @Nullable [] interfaces) {
+                        addInternalName(superName, packages);
+                        if (interfaces != null) {
+                            for (String anInterface : interfaces) {
+                                addInternalName(anInterface, packages);
+                            }
+                        }
+                    }
+
+                    @Override
+                    public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+                        addDescriptor(descriptor, packages);
+                        return null;
+                    }
+
+                    @Override
+                    public FieldVisitor visitField(
+                            int access, String name, String descriptor, @Nullable String signature, Object value) {
+                        addDescriptor(descriptor, packages);
+                        return null;
+                    }
+
+                    @Override
+                    public MethodVisitor visitMethod(
+                            int access,
+                            String name,
+                            String descriptor,
+                            @Nullable String signature,
+                            String @Nullable [] exceptions) {
+                        addDescriptor(descriptor, packages);
+                        if (exceptions != null) {
+                            for (String exception : exceptions) {
+                                addInternalName(exception, packages);
+                            }
+                        }
+                        return null;
+                    }
+                },
+                ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+    }
+
+    private static void addInternalName(@Nullable String internalName, Set<String> packages) {
+        if (internalName == null) {
+            return;
+        }
+        if (internalName.startsWith("[")) {
+            addDescriptor(internalName, packages);
+            return;
+        }
+        int i = internalName.lastIndexOf('/');
+        if (i > 0) {
+            packages.add(internalName.substring(0, i));
+        }
+    }
+
+    private static void addDescriptor(String descriptor, Set<String> packages) {
+        Type type = Type.getType(descriptor);
+        if (type.getSort() == Type.METHOD) {
+            for (Type argument : type.getArgumentTypes()) {
+                addType(argument, packages);
+            }
+            addType(type.getReturnType(), packages);
+        } else {
+            addType(type, packages);
+        }
+    }
+
+    private static void addType(Type type, Set<String> packages) {
+        Type elementType = type.getSort() == Type.ARRAY ? type.getElementType() : type;
+        if (elementType.getSort() == Type.OBJECT) {
+            addInternalName(elementType.getInternalName(), packages);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+// SPDX-License-Identifier: Apache-2.0
+package org.gradlex.javamodule.moduleinfo.internal;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import org.jspecify.annotations.NullMarked;
+
+/**
+ * A size-bounded cache that drops the least recently used entry when it is full.
+ * It is meant to be held in a static field to share results between transforms that run in the same Gradle daemon.
+ * Computations are done outside the lock. If two threads compute the same value concurrently, both results are
+ * equal and the last one is kept.
+ */
+@NullMarked
+public final class BoundedCache<K, V> {
+
+    private final Map<K, V> entries;
+
+    public BoundedCache(int maxSize) {
+        this.entries = new LinkedHashMap<K, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    public V computeIfAbsent(K key, Function<K, V> compute) {
+        synchronized (entries) {
+            V value = entries.get(key);
+            if (value != null) {
+                return value;
+            }
+        }
+        V value = compute.apply(key);
+        synchronized (entries) {
+            entries.put(key, value);
+        }
+        return value;
+    }
+}
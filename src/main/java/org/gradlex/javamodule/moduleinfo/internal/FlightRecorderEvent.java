@@ -0,0 +1,199 @@
+// SPDX-License-Identifier: Apache-2.0
+package org.gradlex.javamodule.moduleinfo.internal;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * A JDK Flight Recorder event for the work done by the plugin ('org.gradlex.javamodule.moduleinfo.Work').
+ * The plugin supports Java 8, where the 'jdk.jfr' API may not be available. Therefore, the event type is
+ * defined dynamically through 'jdk.jfr.EventFactory'. If that is not possible, events are not recorded.
+ * <p>
+ * Usage:
+ * <pre>
+ * try (FlightRecorderEvent event = FlightRecorderEvent.begin("foo.jar", "ModuleInfo", "copy")) {
+ *     event.addEntry(bytes);
+ * }
+ * </pre>
+ */
+@NullMarked
+public final class FlightRecorderEvent implements AutoCloseable {
+
+    private static final int ARTIFACT = 0;
+    private static final int SPEC_TYPE = 1;
+    private static final int PHASE = 2;
+    private static final int BYTES = 3;
+    private static final int ENTRIES = 4;
+
+    @Nullable
+    private static final EventType EVENT_TYPE = EventType.define();
+
+    @Nullable
+    private final Object event;
+
+    private long bytes = 0;
+    private int entries = 0;
+
+    private FlightRecorderEvent(@Nullable Object event) {
+        this.event = event;
+    }
+
+    /**
+     * @param artifact the Jar file name or the coordinates the work is done for
+     * @param specType the kind of module spec (e.g. 'ModuleInfo') or 'none'
+     * @param phase the phase of the work (e.g. 'copy', 'merge', 'module-info', 'metadata', 'jdeps')
+     * @return a started event that is committed when it is closed
+     */
+    public static FlightRecorderEvent begin(String artifact, String specType, String phase) {
+        if (EVENT_TYPE == null) {
+            return new FlightRecorderEvent(null);
+        }
+        Object event = EVENT_TYPE.begin();
+        if (event != null) {
+            EVENT_TYPE.set(event, ARTIFACT, artifact);
+            EVENT_TYPE.set(event, SPEC_TYPE, specType);
+            EVENT_TYPE.set(event, PHASE, phase);
+        }
+        return new FlightRecorderEvent(event);
+    }
+
+    /**
+     * Record that one entry (e.g. of a Jar) with the given size has been processed.
+     *
+     * @param size number of bytes of the entry
+     */
+    public void addEntry(long size) {
+        entries++;
+        bytes += size;
+    }
+
+    /**
+     * @param bytes overall number of bytes processed (if not collected through {@link #addEntry(long)})
+     */
+    public void setBytes(long bytes) {
+        this.bytes = bytes;
+    }
+
+    /**
+     * @param entries overall number of entries processed (if not collected through {@link #addEntry(long)})
+     */
+    public void setEntries(int entries) {
+        this.entries = entries;
+    }
+
+    @Override
+    public void close() {
+        if (EVENT_TYPE != null && event != null) {
+            EVENT_TYPE.set(event, BYTES, bytes);
+            EVENT_TYPE.set(event, ENTRIES, entries);
+            EVENT_TYPE.commit(event);
+        }
+    }
+
+    private static final class EventType {
+        private final Object factory;
+        private final Method newEvent;
+        private final Method begin;
+        private final Method end;
+        private final Method commit;
+        private final Method isEnabled;
+        private final Method set;
+
+        private EventType(Object factory, Class<?> eventFactoryClass, Class<?> eventClass)
+                throws ReflectiveOperationException {
+            this.factory = factory;
+            this.newEvent = eventFactoryClass.getMethod("newEvent");
+            this.begin = eventClass.getMethod("begin");
+            this.end = eventClass.getMethod("end");
+            this.commit = eventClass.getMethod("commit");
+            this.isEnabled = eventClass.getMethod("isEnabled");
+            this.set = eventClass.getMethod("set", int.class, Object.class);
+        }
+
+        @Nullable
+        static EventType define() {
+            try {
+                Class<?> annotationElementClass = Class.forName("jdk.jfr.AnnotationElement");
+                Class<?> valueDescriptorClass = Class.forName("jdk.jfr.ValueDescriptor");
+                Class<?> eventFactoryClass = Class.forName("jdk.jfr.EventFactory");
+                Class<?> eventClass = Class.forName("jdk.jfr.Event");
+                Constructor<?> annotation = annotationElementClass.getConstructor(Class.class, Object.class);
+                Constructor<?> field = valueDescriptorClass.getConstructor(Class.class, String.class, List.class);
+                Class<?> nameClass = annotationType("jdk.jfr.Name");
+                Class<?> labelClass = annotationType("jdk.jfr.Label");
+                Class<?> categoryClass = annotationType("jdk.jfr.Category");
+                Class<?> descriptionClass = annotationType("jdk.jfr.Description");
+
+                List<Object> eventAnnotations = Arrays.asList(
+                        annotation.newInstance(nameClass, "org.gradlex.javamodule.moduleinfo.Work"),
+                        annotation.newInstance(labelClass, "Extra Java Module Info"),
+                        annotation.newInstance(categoryClass, new String[] {"Gradle", "Extra Java Module Info"}),
+                        annotation.newInstance(
+                                descriptionClass, "Jar analysis, rewriting and metadata resolution of the plugin"));
+
+                // order of fields corresponds to the index constants (ARTIFACT, SPEC_TYPE, ...)
+                List<Object> fields = new ArrayList<>();
+                fields.add(field.newInstance(String.class, "artifact", label(annotation, labelClass, "Artifact")));
+                fields.add(field.newInstance(String.class, "specType", label(annotation, labelClass, "Spec Type")));
+                fields.add(field.newInstance(String.class, "phase", label(annotation, labelClass, "Phase")));
+                fields.add(field.newInstance(long.class, "bytes", label(annotation, labelClass, "Bytes")));
+                fields.add(field.newInstance(int.class, "entries", label(annotation, labelClass, "Entries")));
+
+                Object factory = eventFactoryClass
+                        .getMethod("create", List.class, List.class)
+                        .invoke(null, eventAnnotations, fields);
+                return new EventType(factory, eventFactoryClass, eventClass);
+            } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+                // Flight Recorder API not available in this JVM
+                return null;
+            }
+        }
+
+        private static Class<?> annotationType(String name) throws ClassNotFoundException {
+            return Class.forName(name).asSubclass(Annotation.class);
+        }
+
+        private static List<Object> label(Constructor<?> annotation, Class<?> labelClass, String label)
+                throws ReflectiveOperationException {
+            return Collections.singletonList(annotation.newInstance(labelClass, label));
+        }
+
+        @Nullable
+        Object begin() {
+            try {
+                Object event = newEvent.invoke(factory);
+                if (!(Boolean) isEnabled.invoke(event)) {
+                    return null;
+                }
+                begin.invoke(event);
+                return event;
+            } catch (ReflectiveOperationException e) {
+                return null;
+            }
+        }
+
+        void set(Object event, int index, Object value) {
+            try {
+                set.invoke(event, index, value);
+            } catch (ReflectiveOperationException ignored) {
+                // event is incomplete, but it is not worth failing the build
+            }
+        }
+
+        void commit(Object event) {
+            try {
+                end.invoke(event);
+                commit.invoke(event);
+            } catch (ReflectiveOperationException ignored) {
+                // event is lost, but it is not worth failing the build
+            }
+        }
+    }
+}
@@ -0,0 +1,142 @@
+// SPDX-License-Identifier: Apache-2.0
+package org.gradlex.javamodule.moduleinfo.internal;
+
+import java.util.jar.JarFile;
+import org.jspecify.annotations.NullMarked;
+
+/**
+ * Classifies the entries of a Jar by their name, and finds the package of an entry, without regular expressions
+ * and without allocating. This is done for every entry that the transform copies, which are many in large Jars.
+ */
+@NullMarked
+public final class JarEntryClassifier {
+
+    public enum Kind {
+        MANIFEST,
+        MODULE_INFO,
+        SIGNATURE,
+        SERVICE_PROVIDER,
+        CLASS,
+        RESOURCE
+    }
+
+    private static final String META_INF = "META-INF/";
+    private static final String SERVICES_PREFIX = "META-INF/services/";
+    private static final String VERSIONS_PREFIX = "META-INF/versions/";
+    private static final String MODULE_INFO_CLASS = "module-info.class";
+    private static final String CLASS_SUFFIX = ".class";
+    private static final String[] SIGNATURE_SUFFIXES = {".SF", ".RSA", ".DSA", ".sf", ".rsa", ".dsa"};
+
+    private JarEntryClassifier() {}
+
+    /**
+     * @return the kind of the entry; only the 'module-info.class' is also recognized in a versioned folder
+     */
+    public static Kind kind(String entryName) {
+        if (entryName.startsWith(META_INF)) {
+            if (JarFile.MANIFEST_NAME.equals(entryName)) {
+                return Kind.MANIFEST;
+            }
+            if (isServiceProvider(entryName)) {
+                return Kind.SERVICE_PROVIDER;
+            }
+            if (isSignature(entryName)) {
+                return Kind.SIGNATURE;
+            }
+            int versionedStart = versionedStart(entryName);
+            if (versionedStart > 0 && isModuleInfo(entryName, versionedStart)) {
+                return Kind.MODULE_INFO;
+            }
+        } else if (isModuleInfo(entryName, 0)) {
+            return Kind.MODULE_INFO;
+        }
+        return entryName.endsWith(CLASS_SUFFIX) ? Kind.CLASS : Kind.RESOURCE;
+    }
+
+    /**
+     * @return true, if the entry is in a versioned folder of a Multi-Release Jar ('META-INF/versions/N/...')
+     */
+    public static boolean isVersioned(String entryName) {
+        return versionedStart(entryName) > 0;
+    }
+
+    /**
+     * @return the start of the package path in the entry name: after 'META-INF/versions/N/' for versioned entries
+     *         in a package, otherwise 0
+     */
+    public static int packageStart(String entryName) {
+        int versionedStart = versionedStart(entryName);
+        return versionedStart > 0 && entryName.lastIndexOf('/') >= versionedStart ? versionedStart : 0;
+    }
+
+    /**
+     * @return the end of the package path in the entry name, which is equal to {@link #packageStart(String)} for
+     *         entries in the root folder
+     */
+    public static int packageEnd(String entryName) {
+        return Math.max(entryName.lastIndexOf('/'), packageStart(entryName));
+    }
+
+    /**
+     * @return the version N of an entry in a versioned folder ('META-INF/versions/N/...'), or -1 if the entry is
+     *         not in a versioned folder; versions that do not fit into an int are {@link Integer#MAX_VALUE}
+     */
+    public static int version(String entryName) {
+        int versionedStart = versionedStart(entryName);
+        if (versionedStart == 0) {
+            return -1;
+        }
+        long version = 0;
+        for (int i = VERSIONS_PREFIX.length(); i < versionedStart - 1; i++) {
+            version = Math.min(version * 10 + (entryName.charAt(i) - '0'), Integer.MAX_VALUE);
+        }
+        return (int) version;
+    }
+
+    /**
+     * @return the position after 'META-INF/versions/N/', or 0 if the entry is not in a versioned folder
+     */
+    public static int versionedStart(String entryName) {
+        if (!entryName.startsWith(VERSIONS_PREFIX)) {
+            return 0;
+        }
+        int i = VERSIONS_PREFIX.length();
+        while (i < entryName.length() && isDigit(entryName.charAt(i))) {
+            i++;
+        }
+        if (i == VERSIONS_PREFIX.length() || i == entryName.length() || entryName.charAt(i) != '/') {
+            return 0;
+        }
+        return i + 1;
+    }
+
+    private static boolean isModuleInfo(String entryName, int start) {
+        return entryName.length() - start == MODULE_INFO_CLASS.length()
+                && entryName.startsWith(MODULE_INFO_CLASS, start);
+    }
+
+    private static boolean isServiceProvider(String entryName) {
+        return entryName.length() > SERVICES_PREFIX.length()
+                && entryName.startsWith(SERVICES_PREFIX)
+                && entryName.indexOf('/', SERVICES_PREFIX.length()) < 0; // ignore files in sub-folders
+    }
+
+    /**
+     * 'META-INF/NAME.SF' (or '.RSA', '.DSA' - upper or lower case), but not in a sub-folder of 'META-INF'
+     */
+    private static boolean isSignature(String entryName) {
+        if (entryName.indexOf('/', META_INF.length()) >= 0) {
+            return false;
+        }
+        for (String suffix : SIGNATURE_SUFFIXES) {
+            if (entryName.length() > META_INF.length() + suffix.length() && entryName.endsWith(suffix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
@@ -0,0 +1,155 @@
+// SPDX-License-Identifier: Apache-2.0
+package org.gradlex.javamodule.moduleinfo.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ModuleVisitor;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * What the plugin needs to know about a Jar before transforming it: if it is a module, its module name and
+ * 'Automatic-Module-Name', and its packages. The facts are read from the manifest and the central directory of the
+ * Jar. They are kept for unchanged Jars (same path, size and modification time) across the builds that run in the
+ * same Gradle daemon.
+ */
+@NullMarked
+public final class JarFacts {
+
+    // Facts of Jars, shared by all transforms running in the same Gradle daemon
+    private static final BoundedCache<String, JarFacts> CACHE = new BoundedCache<>(10000);
+
+    // A file that is not a Zip (e.g. a '.jar' that is something else) is no module and has no packages
+    private static final JarFacts NOT_A_ZIP = new JarFacts(false, null, null, Collections.emptySet());
+
+    private final boolean module;
+
+    @Nullable
+    private final String moduleName;
+
+    @Nullable
+    private final String automaticModuleName;
+
+    private final List<String> packages;
+
+    private JarFacts(
+            boolean module, @Nullable String moduleName, @Nullable String automaticModuleName, Set<String> packages) {
+        this.module = module;
+        this.moduleName = moduleName;
+        this.automaticModuleName = automaticModuleName;
+        this.packages = Collections.unmodifiableList(new ArrayList<>(packages));
+    }
+
+    /**
+     * @throws RuntimeException if the file cannot be read
+     */
+    public static JarFacts of(File jar) {
+        String key = jar.getAbsolutePath() + "|" + jar.length() + "|" + jar.lastModified();
+        return CACHE.computeIfAbsent(key, k -> read(jar));
+    }
+
+    /**
+     * @return true, if the Jar contains a 'module-info.class' (in a versioned folder only if it is a Multi-Release Jar)
+     */
+    public boolean isModule() {
+        return module;
+    }
+
+    /**
+     * @return the name from the 'module-info.class', if the Jar is a module
+     */
+    @Nullable
+    public String getModuleName() {
+        return moduleName;
+    }
+
+    /**
+     * @return the 'Automatic-Module-Name' of the manifest
+     */
+    @Nullable
+    public String getAutomaticModuleName() {
+        return automaticModuleName;
+    }
+
+    /**
+     * @return the packages (in the form of paths) that contain classes, including those in versioned folders
+     */
+    public List<String> getPackages() {
+        return packages;
+    }
+
+    private static JarFacts read(File jar) {
+        Set<String> packages = new TreeSet<>();
+        boolean module = false;
+        String moduleName = null;
+        String automaticModuleName = null;
+        try (FlightRecorderEvent event = FlightRecorderEvent.begin(jar.getName(), "none", "module-check");
+                JarFile jarFile = new JarFile(jar, false)) {
+            Manifest manifest = jarFile.getManifest();
+            boolean multiRelease = false;
+            if (manifest != null) {
+                automaticModuleName = manifest.getMainAttributes().getValue("Automatic-Module-Name");
+                multiRelease = Boolean.parseBoolean(manifest.getMainAttributes().getValue("Multi-Release"));
+            }
+            Enumeration<? extends ZipEntry> entries = jarFile.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                event.addEntry(Math.max(entry.getSize(), 0));
+                String name = entry.getName();
+                JarEntryClassifier.Kind kind = JarEntryClassifier.kind(name);
+                boolean rootDescriptor =
+                        kind == JarEntryClassifier.Kind.MODULE_INFO && !JarEntryClassifier.isVersioned(name);
+                if (kind == JarEntryClassifier.Kind.MODULE_INFO) {
+                    module |= rootDescriptor || multiRelease;
+                    if (moduleName == null || rootDescriptor) {
+                        try (InputStream in = jarFile.getInputStream(entry)) {
+                            moduleName = moduleNameFromDescriptor(in);
+                        }
+                    }
+                } else if (kind == JarEntryClassifier.Kind.CLASS) {
+                    int start = JarEntryClassifier.packageStart(name);
+                    int end = JarEntryClassifier.packageEnd(name);
+                    if (start > 0 || (end > 0 && !name.startsWith("META-INF/"))) {
+                        packages.add(name.substring(start, end));
+                    }
+                }
+            }
+        } catch (ZipException e) {
+            return NOT_A_ZIP;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return new JarFacts(module, moduleName, automaticModuleName, packages);
+    }
+
+    @Nullable
+    private static String moduleNameFromDescriptor(InputStream moduleInfoClass) throws IOException {
+        String[] name = new String[1];
+        new ClassReader(moduleInfoClass)
+                .accept(
+                        new ClassVisitor(Opcodes.ASM9) {
+                            @Override
+                            public @Nullable ModuleVisitor visitModule(
+                                    String moduleName, int access, @Nullable String version) {
+                                name[0] = moduleName;
+                                return null;
+                            }
+                        },
+                        ClassReader.SKIP_CODE);
+        return name[0];
+    }
+}
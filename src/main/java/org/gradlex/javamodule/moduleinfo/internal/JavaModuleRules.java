@@ -0,0 +1,96 @@
+// SPDX-License-Identifier: Apache-2.0
+package org.gradlex.javamodule.moduleinfo.internal;
+
+import javax.inject.Inject;
+import org.gradle.api.artifacts.CacheableRule;
+import org.gradle.api.artifacts.ComponentMetadataContext;
+import org.gradle.api.artifacts.ComponentMetadataRule;
+import org.gradle.api.attributes.Attribute;
+import org.gradle.api.attributes.AttributeCompatibilityRule;
+import org.gradle.api.attributes.CompatibilityCheckDetails;
+import org.jspecify.annotations.NullMarked;
+
+/**
+ * Rules to route components that are known to be modules around the transform of the plugin, and components for
+ * which module specs are defined to the transform that handles their spec.
+ */
+@NullMarked
+public final class JavaModuleRules {
+
+    /**
+     * Requested by the classpaths for which the plugin is activated. All Jars are 'javaModule=false' by default.
+     */
+    public static final Attribute<Boolean> JAVA_MODULE_ATTRIBUTE = Attribute.of("javaModule", Boolean.class);
+
+    /**
+     * Routes the Jars of a component to the transform that handles them. It is empty for all components that are
+     * not routed.
+     */
+    public static final Attribute<String> JAVA_MODULE_SPEC_ATTRIBUTE = Attribute.of("javaModuleSpec", String.class);
+
+    /**
+     * The 'javaModuleSpec' value of components that are merged into another module.
+     */
+    public static final String MERGED = "merged";
+
+    /**
+     * The 'javaModuleSpec' value of components for which a 'module()' or 'automaticModule()' spec is defined by
+     * coordinates.
+     */
+    public static final String ROUTED = "routed";
+
+    /**
+     * The 'javaModuleSpec' value of components for which a spec with 'requireAllReferencedModules()' is defined by
+     * coordinates. Only the transform for these components has the classpaths as input.
+     */
+    public static final String REFERENCING = "referencing";
+
+    private JavaModuleRules() {}
+
+    /**
+     * Marks all variants of a component as 'javaModule=true'. Then the Jars of the component already match the
+     * request of classpaths for which the plugin is activated, and no transform is scheduled for them.
+     */
+    @CacheableRule
+    public static class KnownModule implements ComponentMetadataRule {
+        @Override
+        public void execute(ComponentMetadataContext context) {
+            context.getDetails()
+                    .allVariants(variant -> variant.attributes(a -> a.attribute(JAVA_MODULE_ATTRIBUTE, true)));
+        }
+    }
+
+    /**
+     * Marks all variants of a component with the route to the transform that handles it ({@link #ROUTED},
+     * {@link #REFERENCING} or {@link #MERGED}). The Jars of the component are then only picked up by the transform
+     * registered for that route.
+     */
+    @CacheableRule
+    public static class ModuleSpecRoute implements ComponentMetadataRule {
+        private final String route;
+
+        @Inject
+        public ModuleSpecRoute(String route) {
+            this.route = route;
+        }
+
+        @Override
+        public void execute(ComponentMetadataContext context) {
+            context.getDetails()
+                    .allVariants(variant -> variant.attributes(a -> a.attribute(JAVA_MODULE_SPEC_ATTRIBUTE, route)));
+        }
+    }
+
+    /**
+     * A module can always be used where a plain Jar ('javaModule=false') is requested - e.g. when the original
+     * Jars of a classpath are accessed.
+     */
+    public static class ModuleIsCompatibleWithJar implements AttributeCompatibilityRule<Boolean> {
+        @Override
+        public void execute(CompatibilityCheckDetails<Boolean> details) {
+            if (Boolean.FALSE.equals(details.getConsumerValue()) && Boolean.TRUE.equals(details.getProducerValue())) {
+                details.compatible();
+            }
+        }
+    }
+}
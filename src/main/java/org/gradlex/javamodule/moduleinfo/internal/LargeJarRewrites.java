@@ -0,0 +1,56 @@
+// SPDX-License-Identifier: Apache-2.0
+package org.gradlex.javamodule.moduleinfo.internal;
+
+import java.util.concurrent.Semaphore;
+import org.gradle.api.provider.Property;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+import org.jspecify.annotations.NullMarked;
+
+/**
+ * Limits how many large Jars are rewritten by the transform at the same time. A rewrite streams the entries of the
+ * Jar, but it keeps the name and checksum of each entry it writes, and it occupies a worker for a long time with
+ * compressing the entries. Rewrites of smaller Jars do not take a permit. There is one service, and hence one limit,
+ * for the whole build. It is registered by the settings plugin, if present, or else with the default limit.
+ */
+@NullMarked
+public abstract class LargeJarRewrites implements BuildService<LargeJarRewrites.Params> {
+
+    public static final String NAME = "extraJavaModuleInfoLargeJarRewrites";
+
+    public interface Params extends BuildServiceParameters {
+        /**
+         * The maximum number of large Jars that are rewritten at the same time.
+         */
+        Property<Integer> getMaxParallel();
+    }
+
+    private final Semaphore permits;
+
+    public LargeJarRewrites() {
+        this.permits = new Semaphore(Math.max(getParameters().getMaxParallel().get(), 1));
+    }
+
+    /**
+     * Blocks until a permit is available. The permit is released when the returned {@link Permit} is closed.
+     */
+    public Permit acquire() {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        return permits::release;
+    }
+
+    /**
+     * A permit to rewrite a large Jar. A rewrite of a small Jar gets the {@link #NONE} permit.
+     */
+    public interface Permit extends AutoCloseable {
+        Permit NONE = () -> {};
+
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,18 @@
+// SPDX-License-Identifier: Apache-2.0
+package org.gradlex.javamodule.moduleinfo.internal;
+
+import org.gradle.api.artifacts.transform.TransformAction;
+import org.gradle.api.artifacts.transform.TransformOutputs;
+import org.gradle.api.artifacts.transform.TransformParameters;
+import org.jspecify.annotations.NullMarked;
+
+/**
+ * Transform for the Jars of components that are merged into another module. There is no output, because the
+ * content of the Jars ends up in the Jar of the other module. The Jars themselves are not even read.
+ */
+@NullMarked
+public abstract class MergedJarTransform implements TransformAction<TransformParameters.None> {
+
+    @Override
+    public void transform(TransformOutputs outputs) {}
+}
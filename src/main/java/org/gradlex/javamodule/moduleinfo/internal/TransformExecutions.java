@@ -0,0 +1,37 @@
+// SPDX-License-Identifier: Apache-2.0
+package org.gradlex.javamodule.moduleinfo.internal;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.gradle.api.invocation.Gradle;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+import org.jspecify.annotations.NullMarked;
+
+/**
+ * Records the Jars for which the transform was executed in the current build. Gradle does not tell if the result of
+ * a transform was reused - from the transform workspace of an earlier build or from the build cache. A Jar that has a
+ * transformed result, but that was not transformed in the current build, must have been transformed earlier.
+ */
+@NullMarked
+public abstract class TransformExecutions implements BuildService<BuildServiceParameters.None> {
+
+    public static final String NAME = "extraJavaModuleInfoTransformExecutions";
+
+    private final Set<String> executed = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+    public static Provider<TransformExecutions> register(Gradle gradle) {
+        return gradle.getSharedServices().registerIfAbsent(NAME, TransformExecutions.class, spec -> {});
+    }
+
+    public void executed(File originalJar) {
+        executed.add(originalJar.getAbsolutePath());
+    }
+
+    public boolean wasExecuted(File originalJar) {
+        return executed.contains(originalJar.getAbsolutePath());
+    }
+}
@@ -0,0 +1,115 @@
+// SPDX-License-Identifier: Apache-2.0
+package org.gradlex.javamodule.moduleinfo.tasks;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import javax.inject.Inject;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Nested;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.jvm.toolchain.JavaLauncher;
+import org.gradle.process.ExecOperations;
+import org.jspecify.annotations.NullMarked;
+
+/**
+ * Creates a dynamic AppCDS archive (Class Data Sharing) for an application running on the Module Path.
+ * The application is started once as training run with '-XX:ArchiveClassesAtExit', which requires Java 13+.
+ * It should terminate by itself (e.g. controlled through {@link #getArgs()}).
+ * <p>
+ * The archive can only be used with the same Java installation and the same Module Path it was created with.
+ * The task is not cacheable, because the inputs do not identify the Java installation (only its version and vendor).
+ */
+@NullMarked
+public abstract class ClassDataSharingArchive extends DefaultTask {
+
+    /**
+     * @return the Module Path: the application Jar and the (transformed) Jars of the runtime classpath.
+     * The absolute paths are an input, because the archive records them.
+     */
+    @InputFiles
+    @PathSensitive(PathSensitivity.ABSOLUTE)
+    public abstract ConfigurableFileCollection getModulePath();
+
+    /**
+     * @return the name of the module to start
+     */
+    @Input
+    public abstract Property<String> getMainModule();
+
+    /**
+     * @return the class to start, if the main module does not define a main class
+     */
+    @Input
+    @Optional
+    public abstract Property<String> getMainClass();
+
+    /**
+     * @return arguments passed to the application in the training run
+     */
+    @Input
+    public abstract ListProperty<String> getArgs();
+
+    /**
+     * @return additional JVM arguments for the training run
+     */
+    @Input
+    public abstract ListProperty<String> getJvmArgs();
+
+    /**
+     * @return the Java installation used for the training run, which is also the one that can use the archive
+     */
+    @Nested
+    public abstract Property<JavaLauncher> getJavaLauncher();
+
+    /**
+     * @return the archive file to create
+     */
+    @OutputFile
+    public abstract RegularFileProperty getArchiveFile();
+
+    @Inject
+    protected abstract ExecOperations getExecOperations();
+
+    @TaskAction
+    public void createArchive() {
+        JavaLauncher launcher = getJavaLauncher().get();
+        int javaVersion = launcher.getMetadata().getLanguageVersion().asInt();
+        if (javaVersion < 13) {
+            throw new RuntimeException("Creating a CDS archive at exit requires Java 13+, but the Java launcher is "
+                    + javaVersion + ": " + launcher.getExecutablePath());
+        }
+        File archive = getArchiveFile().get().getAsFile();
+        //noinspection ResultOfMethodCallIgnored
+        archive.delete(); // the JVM does not replace an existing archive that does not fit
+
+        String mainModule = getMainModule().get();
+        List<String> args = new ArrayList<>(getJvmArgs().get());
+        args.add("-XX:ArchiveClassesAtExit=" + archive.getAbsolutePath());
+        args.add("--module-path");
+        args.add(getModulePath().getAsPath());
+        args.add("--module");
+        args.add(getMainClass().isPresent() ? mainModule + "/" + getMainClass().get() : mainModule);
+        args.addAll(getArgs().get());
+
+        getExecOperations().exec(spec -> {
+            spec.setExecutable(launcher.getExecutablePath().getAsFile().getAbsolutePath());
+            spec.args(args);
+        });
+
+        if (!archive.isFile()) {
+            throw new RuntimeException("The training run did not create a CDS archive. Check the JVM output above. "
+                    + "Note that only classes from Jar files can be archived.");
+        }
+    }
+}
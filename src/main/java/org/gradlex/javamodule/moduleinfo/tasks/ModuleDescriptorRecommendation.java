@@ -26,15 +26,9 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import javax.inject.Inject;
 import org.gradle.api.DefaultTask;
-import org.gradle.api.artifacts.ModuleIdentifier;
-import org.gradle.api.artifacts.ModuleVersionIdentifier;
-import org.gradle.api.artifacts.component.ComponentIdentifier;
-import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
-import org.gradle.api.artifacts.result.DependencyResult;
-import org.gradle.api.artifacts.result.ResolvedComponentResult;
-import org.gradle.api.artifacts.result.ResolvedDependencyResult;
 import org.gradle.api.file.FileSystemOperations;
 import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.MapProperty;
 import org.gradle.api.provider.Property;
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.InputFiles;
@@ -42,6 +36,7 @@ import org.gradle.api.tasks.PathSensitive;
 import org.gradle.api.tasks.PathSensitivity;
 import org.gradle.api.tasks.TaskAction;
 import org.gradle.work.DisableCachingByDefault;
+import org.gradlex.javamodule.moduleinfo.internal.FlightRecorderEvent;
 import org.jspecify.annotations.NullMarked;
 
 @NullMarked
@@ -50,11 +45,11 @@ public abstract class ModuleDescriptorRecommendation extends DefaultTask {
 
     private static final class Artifact {
 
-        final ModuleIdentifier coordinates;
+        final String coordinates;
 
-        final Set<ModuleIdentifier> runtimeDependencies = new HashSet<>();
+        final Set<String> runtimeDependencies = new HashSet<>();
 
-        final Set<ModuleIdentifier> compileDependencies = new HashSet<>();
+        final Set<String> compileDependencies = new HashSet<>();
 
         final File jar;
 
@@ -69,13 +64,21 @@ public abstract class ModuleDescriptorRecommendation extends DefaultTask {
 
         boolean automatic;
 
-        Artifact(ModuleIdentifier coordinates, File jar) {
+        Artifact(String coordinates, File jar) {
             this.coordinates = coordinates;
             this.jar = jar;
         }
 
-        Set<ModuleIdentifier> allDependencies() {
-            Set<ModuleIdentifier> out = new HashSet<>();
+        String group() {
+            return coordinates.substring(0, coordinates.indexOf(':'));
+        }
+
+        String name() {
+            return coordinates.substring(coordinates.indexOf(':') + 1);
+        }
+
+        Set<String> allDependencies() {
+            Set<String> out = new HashSet<>();
             out.addAll(compileDependencies);
             out.addAll(runtimeDependencies);
             return out;
@@ -89,10 +92,7 @@ public abstract class ModuleDescriptorRecommendation extends DefaultTask {
 
         String dsl() {
             List<String> out = new ArrayList<>();
-            String group = this.coordinates.getGroup();
-            String name = this.coordinates.getName();
-            String moduleName = this.moduleName;
-            out.add("module('" + group + ":" + name + "', '" + moduleName + "') {");
+            out.add("module('" + coordinates + "', '" + moduleName + "') {");
             out.add("    closeModule()");
             for (String item : this.requiresTransitive) {
                 out.add("    requiresTransitive('" + item + "')");
@@ -142,15 +142,33 @@ public abstract class ModuleDescriptorRecommendation extends DefaultTask {
     @PathSensitive(PathSensitivity.RELATIVE)
     public abstract ListProperty<File> getRuntimeArtifacts();
 
+    /**
+     * @return the 'group:name' coordinates of each of the runtime artifacts (in the same order)
+     */
     @Input
-    public abstract ListProperty<ResolvedComponentResult> getRuntimeResolvedComponentResults();
+    public abstract ListProperty<String> getRuntimeArtifactCoordinates();
+
+    /**
+     * @return the 'group:name' coordinates of the direct dependencies of each component on the runtime classpath
+     */
+    @Input
+    public abstract MapProperty<String, List<String>> getRuntimeDependencies();
 
     @InputFiles
     @PathSensitive(PathSensitivity.RELATIVE)
     public abstract ListProperty<File> getCompileArtifacts();
 
+    /**
+     * @return the 'group:name' coordinates of each of the compile artifacts (in the same order)
+     */
+    @Input
+    public abstract ListProperty<String> getCompileArtifactCoordinates();
+
+    /**
+     * @return the 'group:name' coordinates of the direct dependencies of each component on the compile classpath
+     */
     @Input
-    public abstract ListProperty<ResolvedComponentResult> getCompileResolvedComponentResults();
+    public abstract MapProperty<String, List<String>> getCompileDependencies();
 
     @Input
     public abstract Property<Integer> getRelease();
@@ -163,20 +181,22 @@ public abstract class ModuleDescriptorRecommendation extends DefaultTask {
         Java8SafeToolProvider jdepsTool = Java8SafeToolProvider.findFirst("jdeps");
         Java8SafeToolProvider jarTool = Java8SafeToolProvider.findFirst("jar");
 
-        Map<ModuleIdentifier, Artifact> artifacts = new HashMap<>();
+        Map<String, Artifact> artifacts = new HashMap<>();
         extractArtifactsAndTheirDependencies(
                 artifacts,
                 getRuntimeArtifacts().get(),
-                getRuntimeResolvedComponentResults().get(),
+                getRuntimeArtifactCoordinates().get(),
+                getRuntimeDependencies().get(),
                 artifact -> artifact.runtimeDependencies);
         extractArtifactsAndTheirDependencies(
                 artifacts,
                 getCompileArtifacts().get(),
-                getCompileResolvedComponentResults().get(),
+                getCompileArtifactCoordinates().get(),
+                getCompileDependencies().get(),
                 artifact -> artifact.compileDependencies);
 
         Path temporaryFolder = Files.createTempDirectory("jdeps-task");
-        for (Map.Entry<ModuleIdentifier, Artifact> entry : artifacts.entrySet()) {
+        for (Map.Entry<String, Artifact> entry : artifacts.entrySet()) {
             Artifact artifact = entry.getValue();
             storeJarToolParsedMetadata(jarTool, artifact);
             if (artifact.automatic) {
@@ -184,10 +204,10 @@ public abstract class ModuleDescriptorRecommendation extends DefaultTask {
             }
         }
         List<Artifact> modulesToRecommend = new ArrayList<>();
-        for (Map.Entry<ModuleIdentifier, Artifact> entry : artifacts.entrySet()) {
+        for (Map.Entry<String, Artifact> entry : artifacts.entrySet()) {
             Artifact artifact = entry.getValue();
             if (artifact.automatic) {
-                for (ModuleIdentifier dependency : artifact.allDependencies()) {
+                for (String dependency : artifact.allDependencies()) {
                     Artifact dependencyArtifact = artifacts.get(dependency);
                     // If the dependency modifier was not identified by jdeps, try to find it the "best" possible
                     // requires modifier
@@ -210,8 +230,8 @@ public abstract class ModuleDescriptorRecommendation extends DefaultTask {
             }
         }
 
-        modulesToRecommend.sort(Comparator.<Artifact, String>comparing(entry -> entry.coordinates.getGroup())
-                .thenComparing(entry -> entry.coordinates.getName()));
+        modulesToRecommend.sort(
+                Comparator.<Artifact, String>comparing(Artifact::group).thenComparing(Artifact::name));
 
         for (Artifact artifact : modulesToRecommend) {
             System.out.println(artifact.dsl());
@@ -225,37 +245,19 @@ public abstract class ModuleDescriptorRecommendation extends DefaultTask {
     }
 
     private static void extractArtifactsAndTheirDependencies(
-            Map<ModuleIdentifier, Artifact> jarsToAnalyze,
+            Map<String, Artifact> jarsToAnalyze,
             List<File> artifacts,
-            List<ResolvedComponentResult> resolvedComponentResults,
-            Function<Artifact, Set<ModuleIdentifier>> depsSink) {
-        for (ResolvedComponentResult artifact : resolvedComponentResults) {
-            ComponentIdentifier identifier = artifact.getId();
-            if (identifier instanceof ModuleComponentIdentifier) {
-                ModuleIdentifier moduleIdentifier = ((ModuleComponentIdentifier) identifier).getModuleIdentifier();
-                int index = resolvedComponentResults.indexOf(artifact);
-                jarsToAnalyze.computeIfAbsent(
-                        moduleIdentifier, (ignore) -> new Artifact(moduleIdentifier, artifacts.get(index)));
-            }
+            List<String> artifactCoordinates,
+            Map<String, List<String>> dependencies,
+            Function<Artifact, Set<String>> depsSink) {
+        for (int i = 0; i < artifacts.size(); i++) {
+            File jar = artifacts.get(i);
+            jarsToAnalyze.computeIfAbsent(artifactCoordinates.get(i), coordinates -> new Artifact(coordinates, jar));
         }
-        for (ResolvedComponentResult resolvedComponent : resolvedComponentResults) {
-            ModuleVersionIdentifier moduleVersion = resolvedComponent.getModuleVersion();
-            if (moduleVersion == null) {
-                continue;
-            }
-            Artifact artifact = jarsToAnalyze.get(moduleVersion.getModule());
-            if (artifact == null) {
-                continue;
-            }
-            for (DependencyResult dependency : resolvedComponent.getDependencies()) {
-                if (dependency instanceof ResolvedDependencyResult) {
-                    ModuleVersionIdentifier dependantModuleVersion = ((ResolvedDependencyResult) dependency)
-                            .getSelected()
-                            .getModuleVersion();
-                    if (dependantModuleVersion != null) {
-                        depsSink.apply(artifact).add(dependantModuleVersion.getModule());
-                    }
-                }
+        for (Map.Entry<String, List<String>> component : dependencies.entrySet()) {
+            Artifact artifact = jarsToAnalyze.get(component.getKey());
+            if (artifact != null) {
+                depsSink.apply(artifact).addAll(component.getValue());
             }
         }
     }
@@ -283,7 +285,11 @@ public abstract class ModuleDescriptorRecommendation extends DefaultTask {
         args.addAll(Arrays.asList("--multi-release", String.valueOf(getRelease().get())));
         args.add("--ignore-missing-deps");
         args.add(targetArtifact.jar.getAbsolutePath());
-        int retVal = jdeps.run(new PrintWriter(out, true), new PrintWriter(err, true), args.toArray(new String[0]));
+        int retVal;
+        try (FlightRecorderEvent event = FlightRecorderEvent.begin(targetArtifact.jar.getName(), "none", "jdeps")) {
+            retVal = jdeps.run(new PrintWriter(out, true), new PrintWriter(err, true), args.toArray(new String[0]));
+            event.setBytes(targetArtifact.jar.length());
+        }
         if (retVal != 0) {
             throw new RuntimeException(String.format("jdeps returned error %d\n%s\n%s", retVal, out, err));
         }
@@ -323,14 +329,18 @@ public abstract class ModuleDescriptorRecommendation extends DefaultTask {
     private void storeJarToolParsedMetadata(Java8SafeToolProvider jar, Artifact artifact) {
         StringWriter out = new StringWriter();
         StringWriter err = new StringWriter();
-        int retVal = jar.run(
-                new PrintWriter(out, true),
-                new PrintWriter(err, true),
-                "--describe-module",
-                "--file",
-                artifact.jar.getAbsolutePath(),
-                "--release",
-                String.valueOf(getRelease().get()));
+        int retVal;
+        try (FlightRecorderEvent event = FlightRecorderEvent.begin(artifact.jar.getName(), "none", "jar")) {
+            retVal = jar.run(
+                    new PrintWriter(out, true),
+                    new PrintWriter(err, true),
+                    "--describe-module",
+                    "--file",
+                    artifact.jar.getAbsolutePath(),
+                    "--release",
+                    String.valueOf(getRelease().get()));
+            event.setBytes(artifact.jar.length());
+        }
         if (retVal != 0) {
             throw new RuntimeException(String.format("jar returned error %d\n%s\n%s", retVal, out, err));
         }
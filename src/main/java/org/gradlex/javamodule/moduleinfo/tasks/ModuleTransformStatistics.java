@@ -0,0 +1,141 @@
+// SPDX-License-Identifier: Apache-2.0
+package org.gradlex.javamodule.moduleinfo.tasks;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.work.DisableCachingByDefault;
+import org.gradlex.javamodule.moduleinfo.internal.JarFacts;
+import org.gradlex.javamodule.moduleinfo.internal.TransformExecutions;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Lists, for each activated Configuration, all artifacts and what the transform of the plugin did with them.
+ * Each line contains the size of the original and the transformed Jar. For a Jar that was rewritten, it also says
+ * whether the transform was executed in this build or whether its result was reused ('from cache'), either from the
+ * transform workspace of an earlier build or from the build cache.
+ */
+@NullMarked
+@DisableCachingByDefault
+public abstract class ModuleTransformStatistics extends DefaultTask {
+
+    enum Category {
+        REAL_MODULE("real module"),
+        AUTOMATIC_MODULE("automatic module"),
+        AUTOMATIC_MODULE_NAME_ADDED("Automatic-Module-Name added"),
+        MODULE_INFO_GENERATED("module-info generated"),
+        MERGED("merged into another Jar"),
+        SKIPPED("skipped");
+
+        final String description;
+
+        Category(String description) {
+            this.description = description;
+        }
+    }
+
+    private final Map<String, FileCollection> originalArtifacts = new LinkedHashMap<>();
+    private final Map<String, FileCollection> transformedArtifacts = new LinkedHashMap<>();
+
+    /**
+     * @return the service that records which Jars the transform handled in this build
+     */
+    @Internal
+    public abstract Property<TransformExecutions> getTransformExecutions();
+
+    /**
+     * Add a Configuration to the report. The transformed artifacts are only resolved when the task executes.
+     *
+     * @param name name of the Configuration
+     * @param original the artifacts of the Configuration before the transformation
+     * @param transformed the artifacts of the Configuration after the transformation
+     */
+    public void configuration(String name, FileCollection original, FileCollection transformed) {
+        originalArtifacts.put(name, original);
+        transformedArtifacts.put(name, transformed);
+        dependsOn(original); // build local Jars, but do not schedule the transforms before the report
+    }
+
+    @TaskAction
+    public void report() {
+        if (originalArtifacts.isEmpty()) {
+            System.out.println("The plugin is not activated for any Configuration");
+        }
+        TransformExecutions executions = getTransformExecutions().get();
+        for (Map.Entry<String, FileCollection> entry : originalArtifacts.entrySet()) {
+            String configuration = entry.getKey();
+            Set<File> original = entry.getValue().getFiles();
+            List<File> transformed = new ArrayList<>(transformedArtifacts.get(configuration).getFiles());
+
+            System.out.println(configuration);
+            for (File originalJar : original) {
+                File result = findResult(originalJar, transformed);
+                if (result == null) {
+                    printLine(originalJar, Category.MERGED, null, "");
+                } else {
+                    transformed.remove(result);
+                    if (result.equals(originalJar)) {
+                        printLine(originalJar, passThroughCategory(originalJar), result, "");
+                    } else {
+                        Category category = JarFacts.of(result).isModule()
+                                ? Category.MODULE_INFO_GENERATED
+                                : Category.AUTOMATIC_MODULE_NAME_ADDED;
+                        String origin = executions.wasExecuted(originalJar) ? "" : " (from cache)";
+                        printLine(originalJar, category, result, origin);
+                    }
+                }
+            }
+            // artifacts that did not go through the transform at all (e.g. local Jars with 'skipLocalJars = true')
+            for (File remaining : transformed) {
+                printLine(remaining, passThroughCategory(remaining), remaining, "");
+            }
+        }
+    }
+
+    @Nullable
+    private static File findResult(File originalJar, List<File> transformed) {
+        String name = originalJar.getName();
+        String moduleJarName = name.substring(0, name.lastIndexOf('.')) + "-module.jar";
+        File byName = null;
+        for (File candidate : transformed) {
+            if (candidate.equals(originalJar)) {
+                return candidate;
+            }
+            if (byName == null && candidate.getName().equals(moduleJarName)) {
+                byName = candidate;
+            }
+        }
+        return byName;
+    }
+
+    private static Category passThroughCategory(File jar) {
+        JarFacts facts = JarFacts.of(jar);
+        if (facts.isModule()) {
+            return Category.REAL_MODULE;
+        }
+        if (facts.getAutomaticModuleName() != null) {
+            return Category.AUTOMATIC_MODULE;
+        }
+        return Category.SKIPPED;
+    }
+
+    private static void printLine(File jar, Category category, @Nullable File result, String origin) {
+        String outputSize = result == null ? "-" : String.valueOf(result.length());
+        System.out.printf(
+                "    %-50s %-28s %12d -> %12s bytes%s%n",
+                jar.getName(),
+                category.description,
+                jar.length(),
+                outputSize,
+                origin);
+    }
+}
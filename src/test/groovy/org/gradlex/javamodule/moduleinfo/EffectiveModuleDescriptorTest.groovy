@@ -0,0 +1,34 @@
+package org.gradlex.javamodule.moduleinfo
+
+import spock.lang.Specification
+
+class EffectiveModuleDescriptorTest extends Specification {
+
+    def "descriptors with the same content are equal"() {
+        expect:
+        descriptor(spec(), ['org/example'], null) == descriptor(spec(), ['org/example'], null)
+        descriptor(spec(), ['org/example'], null).hashCode() == descriptor(spec(), ['org/example'], null).hashCode()
+        descriptor(spec(), [], [1, 2] as byte[]) == descriptor(spec(), [], [1, 2] as byte[])
+    }
+
+    def "descriptors that differ in any content are not equal"() {
+        given:
+        def other = spec()
+        other.requires('other.module')
+
+        expect:
+        descriptor(spec(), ['org/example'], null) != descriptor(spec(), ['org/example/other'], null)
+        descriptor(spec(), ['org/example'], null) != descriptor(other, ['org/example'], null)
+        descriptor(spec(), [], [1, 2] as byte[]) != descriptor(spec(), [], [1, 3] as byte[])
+    }
+
+    private static ModuleInfo spec() {
+        def moduleInfo = new ModuleInfo('org.example:lib', 'org.example.lib', null, null)
+        moduleInfo.preserveExisting = true
+        moduleInfo
+    }
+
+    private static EffectiveModuleDescriptor descriptor(ModuleInfo moduleInfo, List<String> packages, byte[] existing) {
+        new EffectiveModuleDescriptor(moduleInfo, '1.0', [] as Set, packages as Set, [:], [], [], [], [], [], existing)
+    }
+}
@@ -0,0 +1,55 @@
+package org.gradlex.javamodule.moduleinfo
+
+import spock.lang.Specification
+
+class PackageMatcherTest extends Specification {
+
+    def "matches package paths"() {
+        given:
+        def matcher = PackageMatcher.of(['com.foo', 'com.foo.bar.**'])
+
+        expect:
+        matcher.matches('com/foo')
+        !matcher.matches('com')
+        !matcher.matches('com/foobar')
+        !matcher.matches('com/foo/baz')
+        matcher.matches('com/foo/bar')
+        matcher.matches('com/foo/bar/baz')
+        !matcher.matches('com/foo/barbaz')
+    }
+
+    def "does not match names with dots as package paths"() {
+        given:
+        def matcher = PackageMatcher.of(['a.b', 'c/d'])
+
+        expect:
+        matcher.matches('a/b')
+        matcher.matches('c/d')
+        !matcher.matches('a.b')
+        !matcher.matches('c.d')
+        !matcher.matchesEntry('a/b.properties')
+        !matcher.matchesEntry('c/d.properties')
+        matcher.matchesEntry('a/b/c.properties')
+    }
+
+    def "matches entries by their folder"() {
+        given:
+        def matcher = PackageMatcher.of(['com.foo', 'org.bar.**'])
+
+        expect:
+        matcher.matchesEntry('com/foo/A.class')
+        matcher.matchesEntry('com/foo/')
+        !matcher.matchesEntry('com/foo/baz/A.class')
+        matcher.matchesEntry('org/bar/baz/A.class')
+        matcher.matchesEntry('META-INF/versions/11/com/foo/A.class')
+        !matcher.matchesEntry('META-INF/versions/11/A.class')
+        !matcher.matchesEntry('A.class')
+    }
+
+    def "matches nothing without package names"() {
+        expect:
+        PackageMatcher.of([]).is(PackageMatcher.NONE)
+        !PackageMatcher.NONE.matches('com/foo')
+        !PackageMatcher.NONE.matchesEntry('com/foo/A.class')
+    }
+}
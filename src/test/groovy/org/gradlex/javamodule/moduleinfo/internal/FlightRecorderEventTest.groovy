@@ -0,0 +1,58 @@
+package org.gradlex.javamodule.moduleinfo.internal
+
+import spock.lang.Specification
+
+class FlightRecorderEventTest extends Specification {
+
+    def "events are not recorded if the Flight Recorder API is not available"() {
+        given:
+        Class<?> eventClass = new WithoutFlightRecorder().loadClass(FlightRecorderEvent.name)
+
+        when:
+        def event = eventClass.getMethod('begin', String, String, String).invoke(null, 'foo.jar', 'none', 'copy')
+        event.addEntry(10L)
+        event.setEntries(2)
+        event.close()
+
+        then:
+        noExceptionThrown()
+        eventClass.getDeclaredField('EVENT_TYPE').with { accessible = true; get(null) } == null
+    }
+
+    def "events can be used without a recording"() {
+        when:
+        def event = FlightRecorderEvent.begin('foo.jar', 'none', 'copy')
+        event.addEntry(10L)
+        event.close()
+
+        then:
+        noExceptionThrown()
+    }
+
+    /**
+     * Defines its own FlightRecorderEvent class, which does not see the 'jdk.jfr' API - as in a JVM without it.
+     */
+    private static class WithoutFlightRecorder extends ClassLoader {
+        WithoutFlightRecorder() {
+            super(FlightRecorderEventTest.classLoader)
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (name.startsWith('jdk.jfr.')) {
+                throw new ClassNotFoundException(name)
+            }
+            if (!name.startsWith(FlightRecorderEvent.name)) {
+                return super.loadClass(name, resolve)
+            }
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> loaded = findLoadedClass(name)
+                if (loaded == null) {
+                    byte[] bytes = parent.getResourceAsStream(name.replace('.', '/') + '.class').bytes
+                    loaded = defineClass(name, bytes, 0, bytes.length)
+                }
+                return loaded
+            }
+        }
+    }
+}
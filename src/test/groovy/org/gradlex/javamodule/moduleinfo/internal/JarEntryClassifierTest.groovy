@@ -0,0 +1,110 @@
+package org.gradlex.javamodule.moduleinfo.internal
+
+import spock.lang.Specification
+
+import java.util.regex.Pattern
+
+import static org.gradlex.javamodule.moduleinfo.internal.JarEntryClassifier.Kind.*
+
+class JarEntryClassifierTest extends Specification {
+
+    // the regular expressions the classifier replaces
+    static final Pattern MODULE_INFO_CLASS_MRJAR_PATH = Pattern.compile('META-INF/versions/\\d+/module-info.class')
+    static final Pattern MRJAR_VERSIONS_PATH = Pattern.compile('META-INF/versions/\\d+/(.*)/.*')
+    static final Pattern JAR_SIGNATURE_PATH = Pattern.compile('^META-INF/[^/]+\\.(SF|RSA|DSA|sf|rsa|dsa)$')
+    static final Pattern VERSIONED_ENTRY = Pattern.compile('META-INF/versions/(\\d+)/(.+)')
+
+    static final List<String> ENTRY_NAMES = [
+            'module-info.class',
+            'META-INF/versions/9/module-info.class',
+            'META-INF/versions/x/module-info.class',
+            'META-INF/versions//module-info.class',
+            'META-INF/module-info.class',
+            'org/example/module-info.class',
+            'META-INF/MANIFEST.MF',
+            'META-INF/SIGNER.SF',
+            'META-INF/SIGNER.RSA',
+            'META-INF/signer.dsa',
+            'META-INF/signer.Sf',
+            'META-INF/.SF',
+            'META-INF/sub/SIGNER.SF',
+            'META-INF/services/',
+            'META-INF/services/org.example.Service',
+            'META-INF/services/sub/org.example.Service',
+            'META-INF/versions/9/META-INF/services/org.example.Service',
+            'META-INF/maven/org.example/lib/pom.xml',
+            'org/example/A.class',
+            'org/example/',
+            'org/example/a.txt',
+            'A.class',
+            '/A.class',
+            'META-INF/versions/9/A.class',
+            'META-INF/versions/9/org/example/A.class',
+            'META-INF/versions/11/org/example/',
+            'META-INF/versions/9',
+            'META-INF/versions/9/',
+            'META-INF/versions/9//A.class'
+    ]
+
+    def "classifies entries like the regular expressions"() {
+        expect:
+        def kind = JarEntryClassifier.kind(entryName)
+        (kind == MODULE_INFO) == ('module-info.class' == entryName
+                || MODULE_INFO_CLASS_MRJAR_PATH.matcher(entryName).matches())
+        (kind == SIGNATURE) == JAR_SIGNATURE_PATH.matcher(entryName).matches()
+        (kind == MANIFEST) == ('META-INF/MANIFEST.MF' == entryName)
+        (kind == SERVICE_PROVIDER) == (entryName.startsWith('META-INF/services/')
+                && entryName != 'META-INF/services/'
+                && !entryName.substring('META-INF/services/'.length()).contains('/'))
+        (kind == CLASS) == (entryName.endsWith('.class') && kind != MODULE_INFO)
+
+        where:
+        entryName << ENTRY_NAMES
+    }
+
+    def "finds the package of entries like the regular expression"() {
+        expect:
+        entryName.substring(JarEntryClassifier.packageStart(entryName), JarEntryClassifier.packageEnd(entryName)) ==
+                packagePath(entryName)
+
+        where:
+        entryName << ENTRY_NAMES
+    }
+
+    def "recognizes versioned entries"() {
+        expect:
+        JarEntryClassifier.isVersioned('META-INF/versions/9/org/example/A.class')
+        JarEntryClassifier.isVersioned('META-INF/versions/9/module-info.class')
+        !JarEntryClassifier.isVersioned('META-INF/versions/x/org/example/A.class')
+        !JarEntryClassifier.isVersioned('org/example/A.class')
+    }
+
+    def "finds the version and base path of versioned entries like the regular expression"() {
+        expect:
+        def matcher = VERSIONED_ENTRY.matcher(entryName)
+        int versionedStart = JarEntryClassifier.versionedStart(entryName)
+        if (matcher.matches()) {
+            assert JarEntryClassifier.version(entryName) == Integer.parseInt(matcher.group(1))
+            assert entryName.substring(versionedStart) == matcher.group(2)
+        } else {
+            assert versionedStart == 0 || versionedStart == entryName.length()
+        }
+
+        where:
+        entryName << ENTRY_NAMES
+    }
+
+    def "returns no version for entries outside of versioned folders"() {
+        expect:
+        JarEntryClassifier.version('META-INF/versions/17/org/example/A.class') == 17
+        JarEntryClassifier.version('META-INF/versions/x/org/example/A.class') == -1
+        JarEntryClassifier.version('org/example/A.class') == -1
+        JarEntryClassifier.version('META-INF/versions/99999999999/A.class') == Integer.MAX_VALUE
+    }
+
+    private static String packagePath(String entryName) {
+        def mrJarMatcher = MRJAR_VERSIONS_PATH.matcher(entryName)
+        int i = entryName.lastIndexOf('/')
+        i > 0 ? mrJarMatcher.matches() ? mrJarMatcher.group(1) : entryName.substring(0, i) : ''
+    }
+}
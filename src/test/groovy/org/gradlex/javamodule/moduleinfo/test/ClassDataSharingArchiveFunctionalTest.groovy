@@ -0,0 +1,88 @@
+package org.gradlex.javamodule.moduleinfo.test
+
+import org.gradle.testkit.runner.TaskOutcome
+import org.gradlex.javamodule.moduleinfo.test.fixture.GradleBuild
+import spock.lang.Requires
+import spock.lang.Specification
+
+@Requires({ Runtime.version().feature() >= 13 })
+class ClassDataSharingArchiveFunctionalTest extends Specification {
+
+    @Delegate
+    GradleBuild build = new GradleBuild()
+
+    def setup() {
+        settingsFile << 'rootProject.name = "test-project"'
+        buildFile << '''
+            plugins {
+                id("application")
+                id("org.gradlex.extra-java-module-info")
+            }
+            application {
+                mainModule.set("org.gradle.sample.app")
+                mainClass.set("org.gradle.sample.app.Main")
+            }
+            dependencies {
+                implementation("commons-cli:commons-cli:1.4")
+            }
+            extraJavaModuleInfo {
+                module("commons-cli:commons-cli", "org.apache.commons.cli") {
+                    exports("org.apache.commons.cli")
+                }
+            }
+        '''
+        file("src/main/java/module-info.java") << """
+            module org.gradle.sample.app {
+                requires org.apache.commons.cli;
+            }
+        """
+        file("src/main/java/org/gradle/sample/app/Main.java") << """
+            package org.gradle.sample.app;
+
+            import org.apache.commons.cli.Options;
+
+            public class Main {
+                public static void main(String[] args) {
+                    new Options().addOption("t", "training run");
+                }
+            }
+        """
+    }
+
+    def "creates a CDS archive for the application on the Module Path"() {
+        when:
+        def result = task('classDataSharingArchive')
+
+        then:
+        result.task(':classDataSharingArchive').outcome == TaskOutcome.SUCCESS
+        file('build/cds/app.jsa').length() > 0
+    }
+
+    def "archive is up-to-date if nothing changed"() {
+        given:
+        task('classDataSharingArchive')
+
+        when:
+        def result = task('classDataSharingArchive')
+
+        then:
+        result.task(':classDataSharingArchive').outcome == TaskOutcome.UP_TO_DATE
+    }
+
+    def "task is only registered for applications"() {
+        given:
+        buildFile.text = '''
+            plugins {
+                id("java-library")
+                id("org.gradlex.extra-java-module-info")
+            }
+        '''
+
+        when:
+        def result = task('tasks', '--all')
+
+        then:
+        result.output.contains('moduleTransformStatistics')
+        !result.output.contains('classDataSharingArchive')
+    }
+}
@@ -0,0 +1,78 @@
+package org.gradlex.javamodule.moduleinfo.test
+
+import org.gradlex.javamodule.moduleinfo.test.fixture.GradleBuild
+import spock.lang.Specification
+
+import java.util.zip.ZipEntry
+import java.util.zip.ZipFile
+import java.util.zip.ZipOutputStream
+
+class ClassLoadOrderFunctionalTest extends Specification {
+
+    @Delegate
+    GradleBuild build = new GradleBuild()
+
+    def setup() {
+        new ZipOutputStream(new FileOutputStream(file('libs/lib.jar'))).withCloseable { out ->
+            ['META-INF/MANIFEST.MF', 'org/example/A.class', 'org/example/B.class', 'org/example/C.class',
+             'org/example/D.txt'].each { name ->
+                out.putNextEntry(new ZipEntry(name))
+                out.write(name == 'META-INF/MANIFEST.MF' ? 'Manifest-Version: 1.0\r\n\r\n'.bytes : name.bytes)
+                out.closeEntry()
+            }
+        }
+        file('class-load.log') << '''\
+            [0.010s][info][class,load] java.lang.Object source: shared objects file
+            [0.052s][info][class,load] org.example.C source: file:/app/lib.jar
+            [0.053s][info][class,load] org.example.A source: file:/app/lib.jar
+        '''.stripIndent()
+        settingsFile << 'rootProject.name = "test-project"'
+        buildFile << '''
+            plugins {
+                id("java-library")
+                id("org.gradlex.extra-java-module-info")
+            }
+            dependencies {
+                implementation(files("libs/lib.jar"))
+            }
+            extraJavaModuleInfo {
+                module("lib.jar", "org.example.lib")
+            }
+            tasks.register<Sync>("collect") {
+                from(configurations.runtimeClasspath)
+                into(layout.buildDirectory.dir("collected"))
+            }
+        '''
+    }
+
+    def "writes the module descriptor first and keeps the original order by default"() {
+        when:
+        task('collect')
+
+        then:
+        entryNames() == ['META-INF/MANIFEST.MF', 'module-info.class', 'org/example/A.class',
+                         'org/example/B.class', 'org/example/C.class', 'org/example/D.txt']
+    }
+
+    def "places the classes of a load order first"() {
+        given:
+        buildFile << '''
+            extraJavaModuleInfo {
+                classLoadOrder.set(layout.projectDirectory.file("class-load.log"))
+            }
+        '''
+
+        when:
+        task('collect')
+
+        then:
+        entryNames() == ['META-INF/MANIFEST.MF', 'module-info.class', 'org/example/C.class',
+                         'org/example/A.class', 'org/example/B.class', 'org/example/D.txt']
+    }
+
+    private List<String> entryNames() {
+        new ZipFile(file('build/collected/lib-module.jar')).withCloseable { jar ->
+            jar.entries().toList()*.name
+        }
+    }
+}
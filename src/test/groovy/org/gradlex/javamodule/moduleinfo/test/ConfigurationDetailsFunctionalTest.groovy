@@ -244,4 +244,30 @@ class ConfigurationDetailsFunctionalTest extends Specification {
         result.output.contains('org.apache.commons.cli=1.4')
         result.output.contains('org.apache.commons.collections=3.2.2')
     }
+
+    def "does not resolve the Jars to merge if no module merges Jars"() {
+        given:
+        buildFile << """
+            dependencies {
+                implementation("commons-cli:commons-cli:1.4")
+            }
+            configurations.named("javaModulesMergeJars") {
+                incoming.beforeResolve { println("Resolving javaModulesMergeJars") }
+            }
+            extraJavaModuleInfo {
+                automaticModule("commons-cli:commons-cli", "org.apache.commons.cli")
+            }
+            tasks.register("resolve") {
+                inputs.files(configurations.runtimeClasspath)
+                doLast { println(inputs.files.map { it.name }) }
+            }
+        """
+
+        when:
+        def result = task('resolve')
+
+        then:
+        result.output.contains('commons-cli-1.4-module.jar')
+        !result.output.contains('Resolving javaModulesMergeJars')
+    }
 }
@@ -0,0 +1,131 @@
+package org.gradlex.javamodule.moduleinfo.test
+
+import org.gradlex.javamodule.moduleinfo.test.fixture.GradleBuild
+import spock.lang.Specification
+
+import java.util.jar.JarFile
+import java.util.zip.ZipEntry
+import java.util.zip.ZipOutputStream
+
+class DuplicateEntriesFunctionalTest extends Specification {
+
+    @Delegate
+    GradleBuild build = new GradleBuild()
+
+    def setup() {
+        jar('libs/a.jar', ['org/example/a/A.class': 'A', 'same.txt': 'same', 'conflict.txt': 'from a',
+                           'META-INF/services/org.example.Service': 'org.example.Impl\norg.example.a.A\n'])
+        jar('libs/b.jar', ['org/example/b/B.class': 'B', 'same.txt': 'same', 'conflict.txt': 'from b',
+                           'META-INF/services/org.example.Service': '# comment\norg.example.Impl\norg.example.b.B\n'])
+        settingsFile << 'rootProject.name = "test-project"'
+        buildFile << '''
+            plugins {
+                id("java-library")
+                id("org.gradlex.extra-java-module-info")
+            }
+            dependencies {
+                implementation(files("libs/a.jar"))
+                javaModulesMergeJars(files("libs/b.jar"))
+            }
+            tasks.register("resolve") {
+                inputs.files(configurations.runtimeClasspath)
+                doLast { println(inputs.files.map { it.name }) }
+            }
+        '''
+    }
+
+    def "keeps the first of duplicated entries by default and merges service provider files"() {
+        given:
+        buildFile << '''
+            extraJavaModuleInfo {
+                automaticModule("a.jar", "org.example.a") {
+                    mergeJar("b.jar")
+                }
+            }
+            tasks.register<Sync>("collect") {
+                from(configurations.runtimeClasspath)
+                into(layout.buildDirectory.dir("collected"))
+            }
+        '''
+
+        when:
+        def result = task('collect')
+
+        then:
+        !result.output.contains('Duplicate entries')
+        def moduleJar = new JarFile(file('build/collected/a-module.jar'))
+        moduleJar.getInputStream(moduleJar.getEntry('conflict.txt')).text == 'from a'
+        moduleJar.getEntry('org/example/b/B.class') != null
+        moduleJar.getInputStream(moduleJar.getEntry('META-INF/services/org.example.Service')).text ==
+                'org.example.Impl\norg.example.a.A\norg.example.b.B\n'
+        moduleJar.close()
+    }
+
+    def "can fail on duplicated entries with different content"() {
+        given:
+        buildFile << '''
+            extraJavaModuleInfo {
+                automaticModule("a.jar", "org.example.a") {
+                    mergeJar("b.jar")
+                    conflictingDuplicateEntries(org.gradlex.javamodule.moduleinfo.DuplicateEntryPolicy.FAIL)
+                }
+            }
+        '''
+
+        when:
+        def result = failTask('resolve')
+
+        then:
+        result.output.contains("Duplicate entry in 'org.example.a': conflict.txt (different content in a.jar and b.jar)")
+    }
+
+    def "applies the duplicate entry policies when merged Jars are streamed"() {
+        given:
+        buildFile << '''
+            extraJavaModuleInfo {
+                largeJarSize.set(0L)
+                automaticModule("a.jar", "org.example.a") {
+                    mergeJar("b.jar")
+                    conflictingDuplicateEntries(org.gradlex.javamodule.moduleinfo.DuplicateEntryPolicy.FAIL)
+                }
+            }
+        '''
+
+        when:
+        def result = failTask('resolve')
+
+        then:
+        result.output.contains("Duplicate entry in 'org.example.a': conflict.txt (different content in a.jar and b.jar)")
+    }
+
+    def "can report duplicated entries"() {
+        given:
+        buildFile << '''
+            extraJavaModuleInfo {
+                automaticModule("a.jar", "org.example.a") {
+                    mergeJar("b.jar")
+                    identicalDuplicateEntries(org.gradlex.javamodule.moduleinfo.DuplicateEntryPolicy.REPORT)
+                    conflictingDuplicateEntries(org.gradlex.javamodule.moduleinfo.DuplicateEntryPolicy.REPORT)
+                }
+            }
+        '''
+
+        when:
+        def result = task('resolve')
+
+        then:
+        result.output.contains("Duplicate entries in 'org.example.a' (first entry kept):")
+        result.output.contains('same.txt (identical content in a.jar and b.jar)')
+        result.output.contains('conflict.txt (different content in a.jar and b.jar)')
+    }
+
+    private void jar(String path, Map<String, String> entries) {
+        new ZipOutputStream(new FileOutputStream(file(path))).withCloseable { out ->
+            entries.each { name, content ->
+                out.putNextEntry(new ZipEntry(name))
+                out.write(content.bytes)
+                out.closeEntry()
+            }
+        }
+    }
+}
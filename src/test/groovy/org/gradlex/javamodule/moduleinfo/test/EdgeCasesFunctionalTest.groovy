@@ -140,6 +140,28 @@ class EdgeCasesFunctionalTest extends Specification {
         result.output.contains('jsr305-3.0.2-module.jar')
     }
 
+    def "fails for a Jar to merge that cannot be found even if a previous one was found"() {
+        given:
+        buildFile << """                  
+            dependencies {
+                implementation("com.google.code.findbugs:jsr305:3.0.2")
+                implementation("javax.annotation:javax.annotation-api:1.3.2")
+            }
+            
+            extraJavaModuleInfo {
+                module("com.google.code.findbugs:jsr305", "java.annotation") {
+                    mergeJar("javax.annotation:javax.annotation-api")
+                    mergeJar("not-existing-1.0.jar")
+                    exports("javax.annotation")
+                }
+            }
+        """
+
+        expect:
+        def result = failRun()
+        result.output.contains "Jar not found: not-existing-1.0.jar (merged into 'java.annotation')"
+    }
+
     def "can automatically export all packages of a multi-release legacy Jar"() {
         given:
         file("src/main/java/org/gradle/sample/app/Main.java") << """
@@ -313,4 +335,51 @@ class EdgeCasesFunctionalTest extends Specification {
         expect:
         build()
     }
+
+    def "passes through a Jar or Zip file that is not a Zip file"() {
+        given:
+        file("libs/not-a-jar.jar") << "not a Zip file"
+        file("libs/not-a-zip.zip") << "not a Zip file"
+        buildFile << """
+            dependencies {
+                implementation(files("libs/not-a-jar.jar", "libs/not-a-zip.zip"))
+            }
+            
+            extraJavaModuleInfo {
+                failOnMissingModuleInfo.set(false)
+                failOnAutomaticModules.set(true)
+            }
+            
+            tasks.register<Sync>("collect") {
+                from(configurations.runtimeClasspath)
+                into(layout.buildDirectory.dir("collected"))
+            }
+        """
+
+        when:
+        task('collect')
+
+        then:
+        file("build/collected/not-a-jar.jar").text == "not a Zip file"
+        file("build/collected/not-a-zip.zip").text == "not a Zip file"
+    }
+
+    def "fails for a Jar that is not a Zip file and has no mapping"() {
+        given:
+        file("libs/not-a-jar.jar") << "not a Zip file"
+        buildFile << """
+            dependencies {
+                implementation(files("libs/not-a-jar.jar"))
+            }
+            
+            tasks.register<Sync>("collect") {
+                from(configurations.runtimeClasspath)
+                into(layout.buildDirectory.dir("collected"))
+            }
+        """
+
+        expect:
+        def result = failTask('collect')
+        result.output.contains "Not a module and no mapping defined: not-a-jar.jar"
+    }
 }
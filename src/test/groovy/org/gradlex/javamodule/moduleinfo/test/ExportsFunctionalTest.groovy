@@ -56,6 +56,39 @@ class ExportsFunctionalTest extends Specification {
         run()
     }
 
+    def "all packages, not only the exported ones, are listed in the module descriptor"() {
+        given:
+        file("src/main/java/org/gradle/sample/app/Main.java").text = """
+            package org.gradle.sample.app;
+
+            import java.lang.module.ModuleDescriptor;
+
+            public class Main {
+                public static void main(String[] args) throws Exception {
+                    Module module = org.apache.commons.collections.bag.HashBag.class.getModule();
+                    ModuleDescriptor descriptor = ModuleDescriptor.read(module.getResourceAsStream("module-info.class"));
+                    System.out.println("Contains list: " + descriptor.packages().contains("org.apache.commons.collections.list"));
+                }
+            }
+        """
+        buildFile << """     
+            dependencies {
+                implementation("commons-collections:commons-collections:3.2.2")
+            }             
+            extraJavaModuleInfo {
+                module(${libs.commonsCollections}, "apache.commons.collections") {                    
+                    exports("org.apache.commons.collections.bag")
+                }
+            }
+        """
+
+        when:
+        def result = run()
+
+        then:
+        result.output.contains('Contains list: true')
+    }
+
     def "a package can be exported to a specific module and only to this module"() {
         given:
 
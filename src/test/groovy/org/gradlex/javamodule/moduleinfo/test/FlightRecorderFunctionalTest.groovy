@@ -0,0 +1,71 @@
+package org.gradlex.javamodule.moduleinfo.test
+
+import jdk.jfr.consumer.RecordedEvent
+import jdk.jfr.consumer.RecordingFile
+import org.gradlex.javamodule.moduleinfo.test.fixture.GradleBuild
+import spock.lang.Specification
+
+import java.util.zip.ZipEntry
+import java.util.zip.ZipOutputStream
+
+class FlightRecorderFunctionalTest extends Specification {
+
+    @Delegate
+    GradleBuild build = new GradleBuild()
+
+    def setup() {
+        // a Jar in the project folder, so that the transform is not reused from an earlier test run
+        new ZipOutputStream(new FileOutputStream(file("libs/lib-1.0.jar"))).withCloseable { out ->
+            (1..3).each { i ->
+                out.putNextEntry(new ZipEntry("org/example/lib/R${i}.txt"))
+                out.write(i.toString().bytes)
+                out.closeEntry()
+            }
+        }
+        file("gradle.properties") << 'org.gradle.jvmargs=-XX:StartFlightRecording=name=extra-java-module-info'
+        settingsFile << 'rootProject.name = "test-project"'
+        buildFile << '''
+            plugins {
+                id("java-library")
+                id("org.gradlex.extra-java-module-info")
+            }
+            dependencies {
+                implementation(files("libs/lib-1.0.jar"))
+            }
+            extraJavaModuleInfo {
+                automaticModule("lib-1.0.jar", "org.example.lib")
+            }
+            tasks.register<Sync>("collect") {
+                from(configurations.runtimeClasspath)
+                into(layout.buildDirectory.dir("collected"))
+            }
+            tasks.register("dumpRecording") {
+                dependsOn("collect")
+                val recordingFile = layout.buildDirectory.file("work.jfr")
+                doLast {
+                    jdk.jfr.FlightRecorder.getFlightRecorder().recordings
+                        .first { it.name == "extra-java-module-info" }
+                        .dump(recordingFile.get().asFile.toPath())
+                }
+            }
+        '''
+    }
+
+    def "records the work of the transform if a recording is active in the Gradle daemon"() {
+        when:
+        task('dumpRecording')
+
+        then:
+        def copy = workEvents().find { it.getString('artifact') == 'lib-1.0.jar' && it.getString('phase') == 'copy' }
+        copy != null
+        copy.getString('specType') == 'AutomaticModuleName'
+        copy.getInt('entries') == 3
+        copy.getLong('bytes') == 3
+    }
+
+    private List<RecordedEvent> workEvents() {
+        RecordingFile.readAllEvents(file('build/work.jfr').toPath()).findAll {
+            it.eventType.name == 'org.gradlex.javamodule.moduleinfo.Work'
+        }
+    }
+}
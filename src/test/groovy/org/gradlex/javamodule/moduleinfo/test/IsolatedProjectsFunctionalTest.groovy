@@ -0,0 +1,87 @@
+package org.gradlex.javamodule.moduleinfo.test
+
+import org.gradle.testkit.runner.TaskOutcome
+import org.gradlex.javamodule.moduleinfo.test.fixture.GradleBuild
+import org.gradlex.javamodule.moduleinfo.test.fixture.LegacyLibraries
+import spock.lang.IgnoreIf
+import spock.lang.Specification
+
+import java.lang.module.ModuleDescriptor
+import java.util.jar.JarFile
+
+@IgnoreIf({ GradleBuild.gradleVersionUnderTest }) // isolated projects are only turned on with the latest Gradle
+class IsolatedProjectsFunctionalTest extends Specification {
+
+    @Delegate
+    GradleBuild build = new GradleBuild()
+
+    LegacyLibraries libs = new LegacyLibraries(false)
+
+    def setup() {
+        settingsFile << '''
+            dependencyResolutionManagement {
+                repositories.mavenCentral()
+            }
+            rootProject.name = "test-project"
+            include("app1", "app2")
+        '''
+        // module names for 'requireAllDefinedDependencies()', provided through the 'java-module-dependencies' plugin
+        file('gradle/modules.properties') << '''
+            org.apache.httpcomponents.httpcore=org.apache.httpcomponents:httpcore
+            org.apache.commons.codec=commons-codec:commons-codec
+        '''.stripIndent()
+        ['app1', 'app2'].each { name ->
+            file("$name/build.gradle.kts") << """
+                plugins {
+                    id("java-library")
+                    id("org.gradlex.extra-java-module-info")
+                    id("org.gradlex.java-module-dependencies") version "1.9"
+                }
+                dependencies {
+                    implementation("org.apache.httpcomponents:httpclient:4.5.14")
+                }
+                extraJavaModuleInfo {
+                    failOnMissingModuleInfo.set(false)
+                    module(${libs.commonsHttpClient}, "org.apache.httpcomponents.httpclient") {
+                        exportAllPackages()
+                        requireAllDefinedDependencies()
+                    }
+                    module(${libs.commonsLogging}, "org.apache.commons.logging") {
+                        exportAllPackages()
+                        requireAllDefinedDependencies()
+                    }
+                }
+                tasks.register<Sync>("collect") {
+                    from(configurations.runtimeClasspath)
+                    into(layout.buildDirectory.dir("collected"))
+                }
+            """
+        }
+    }
+
+    def "requires from component metadata and module names from java-module-dependencies work with isolated projects"() {
+        when:
+        def result = task(':app1:collect', ':app2:collect')
+
+        then: // any isolation problem fails the build
+        result.task(':app1:collect').outcome == TaskOutcome.SUCCESS
+        result.task(':app2:collect').outcome == TaskOutcome.SUCCESS
+        result.output.contains('Configuration cache entry stored.')
+        ['app1', 'app2'].each { name ->
+            assert requires("$name/build/collected/httpclient-4.5.14-module.jar") == [
+                    'org.apache.commons.codec',
+                    'org.apache.commons.logging',
+                    'org.apache.httpcomponents.httpcore'
+            ] as Set
+        }
+    }
+
+    private Set<String> requires(String jarPath) {
+        new JarFile(file(jarPath)).withCloseable { jar ->
+            ModuleDescriptor.read(jar.getInputStream(jar.getEntry('module-info.class')))
+                    .requires()
+                    .collect { it.name() }
+                    .findAll { it != 'java.base' } as Set
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package org.gradlex.javamodule.moduleinfo.test
+
+import org.gradlex.javamodule.moduleinfo.test.fixture.GradleBuild
+import spock.lang.Specification
+
+class KnownModuleRoutingFunctionalTest extends Specification {
+
+    @Delegate
+    GradleBuild build = new GradleBuild()
+
+    def setup() {
+        settingsFile << 'rootProject.name = "test-project"'
+        buildFile << '''
+            plugins {
+                id("java-library")
+                id("org.gradlex.extra-java-module-info")
+            }
+            dependencies {
+                implementation("commons-cli:commons-cli:1.4")
+            }
+            tasks.register("printClasspath") {
+                val classpath = configurations.runtimeClasspath.get().incoming.files
+                inputs.files(classpath)
+                doLast { classpath.forEach { println("Classpath: " + it.name) } }
+            }
+        '''
+    }
+
+    def "Jars of known modules do not go through the transform with the default settings"() {
+        given:
+        buildFile << '''
+            extraJavaModuleInfo {
+                knownModule("commons-cli:commons-cli", "commons.cli")
+            }
+        '''
+
+        when:
+        def result = task('printClasspath')
+
+        then: // the transform would fail, as the Jar is not a module and 'failOnMissingModuleInfo' is on
+        result.output.contains('Classpath: commons-cli-1.4.jar')
+    }
+
+    def "Jars of known modules do not go through the transform if missing module information is allowed"() {
+        given:
+        buildFile << '''
+            extraJavaModuleInfo {
+                knownModule("commons-cli:commons-cli", "commons.cli")
+                failOnMissingModuleInfo.set(false)
+            }
+        '''
+
+        when:
+        def result = task('printClasspath')
+
+        then:
+        result.output.contains('Classpath: commons-cli-1.4.jar')
+    }
+
+    def "Jars of known modules do not go through the transform if automatic module names are derived from file names"() {
+        given:
+        buildFile << '''
+            extraJavaModuleInfo {
+                knownModule("commons-cli:commons-cli", "commons.cli")
+                deriveAutomaticModuleNamesFromFileNames.set(true)
+            }
+        '''
+
+        when:
+        def result = task('printClasspath')
+
+        then: // the Jar is used as it is, without an 'Automatic-Module-Name' added
+        result.output.contains('Classpath: commons-cli-1.4.jar')
+        !result.output.contains('Classpath: commons-cli-1.4-module.jar')
+    }
+
+    def "Jars of known modules go through the transform if automatic modules are forbidden"() {
+        given:
+        buildFile << '''
+            extraJavaModuleInfo {
+                knownModule("commons-cli:commons-cli", "commons.cli")
+                failOnAutomaticModules.set(true)
+            }
+        '''
+
+        when:
+        def result = failTask('printClasspath')
+
+        then:
+        result.output.contains('Not a module and no mapping defined: commons-cli-1.4.jar')
+    }
+}
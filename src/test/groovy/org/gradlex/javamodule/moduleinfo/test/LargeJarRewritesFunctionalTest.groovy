@@ -0,0 +1,120 @@
+package org.gradlex.javamodule.moduleinfo.test
+
+import org.gradlex.javamodule.moduleinfo.test.fixture.GradleBuild
+import spock.lang.Specification
+
+import java.util.jar.JarFile
+import java.util.zip.ZipEntry
+import java.util.zip.ZipOutputStream
+
+class LargeJarRewritesFunctionalTest extends Specification {
+
+    @Delegate
+    GradleBuild build = new GradleBuild()
+
+    def setup() {
+        (1..4).each { i ->
+            new ZipOutputStream(new FileOutputStream(file("libs/lib$i-1.0.jar"))).withCloseable { out ->
+                out.putNextEntry(new ZipEntry("org/example/lib$i/A.txt"))
+                out.write(new byte[64 * 1024])
+                out.closeEntry()
+            }
+        }
+        settingsFile << 'rootProject.name = "test-project"'
+        buildFile << '''
+            plugins {
+                id("java-library")
+                id("org.gradlex.extra-java-module-info")
+            }
+            dependencies {
+                implementation(files("libs/lib1-1.0.jar", "libs/lib2-1.0.jar", "libs/lib3-1.0.jar"))
+                implementation(files("libs/lib4-1.0.jar"))
+            }
+            extraJavaModuleInfo {
+                automaticModule("lib1-1.0.jar", "org.example.lib1")
+                automaticModule("lib2-1.0.jar", "org.example.lib2")
+                module("lib3-1.0.jar", "org.example.lib3")
+                automaticModule("lib4-1.0.jar", "org.example.lib4")
+            }
+            tasks.register<Sync>("collect") {
+                from(configurations.runtimeClasspath)
+                into(layout.buildDirectory.dir("collected"))
+            }
+        '''
+    }
+
+    def "rewrites large Jars one after the other"() {
+        given:
+        settingsFile.text = '''
+            plugins {
+                id("org.gradlex.extra-java-module-info")
+            }
+            rootProject.name = "test-project"
+            extraJavaModuleInfo {
+                largeJarSize.set(100L * 1024)
+                maxParallelLargeJarRewrites.set(1)
+            }
+        '''
+
+        when:
+        task('collect')
+
+        then:
+        automaticModuleName('lib1-1.0-module.jar') == 'org.example.lib1'
+        automaticModuleName('lib2-1.0-module.jar') == 'org.example.lib2'
+        new JarFile(file('build/collected/lib3-1.0-module.jar')).withCloseable {
+            it.getEntry('module-info.class') != null
+        }
+        automaticModuleName('lib4-1.0-module.jar') == 'org.example.lib4'
+    }
+
+    def "limit of parallel rewrites cannot be set in a project"() {
+        given:
+        buildFile << '''
+            extraJavaModuleInfo {
+                maxParallelLargeJarRewrites.set(1)
+            }
+        '''
+
+        when:
+        def result = failTask('collect')
+
+        then:
+        result.output.contains(
+                "'maxParallelLargeJarRewrites' applies to the whole build and can only be set in settings.gradle(.kts)")
+    }
+
+    def "rewrites Jars with more than 65535 entries"() {
+        given:
+        new ZipOutputStream(new FileOutputStream(file('libs/many-1.0.jar'))).withCloseable { out ->
+            (0..<70000).each { i ->
+                out.putNextEntry(new ZipEntry("org/example/many/R${i}.txt"))
+                out.write(i.toString().bytes)
+                out.closeEntry()
+            }
+        }
+        buildFile << '''
+            dependencies {
+                implementation(files("libs/many-1.0.jar"))
+            }
+            extraJavaModuleInfo {
+                automaticModule("many-1.0.jar", "org.example.many")
+            }
+        '''
+
+        when:
+        task('collect')
+
+        then:
+        automaticModuleName('many-1.0-module.jar') == 'org.example.many'
+        new JarFile(file('build/collected/many-1.0-module.jar')).withCloseable {
+            it.size() == 70001 && it.getInputStream(it.getEntry('org/example/many/R69999.txt')).text == '69999'
+        }
+    }
+
+    private String automaticModuleName(String jarName) {
+        new JarFile(file("build/collected/$jarName")).withCloseable {
+            it.manifest.mainAttributes.getValue('Automatic-Module-Name')
+        }
+    }
+}
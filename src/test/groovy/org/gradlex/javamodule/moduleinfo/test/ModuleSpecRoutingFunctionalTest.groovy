@@ -0,0 +1,125 @@
+package org.gradlex.javamodule.moduleinfo.test
+
+import org.gradlex.javamodule.moduleinfo.test.fixture.GradleBuild
+import org.gradlex.javamodule.moduleinfo.test.fixture.SyntheticLibraries
+import spock.lang.Specification
+
+import java.lang.module.ModuleDescriptor
+import java.nio.file.Files
+import java.util.zip.ZipFile
+
+class ModuleSpecRoutingFunctionalTest extends Specification {
+
+    @Delegate
+    GradleBuild build = new GradleBuild()
+
+    def setup() {
+        // a repository with a flat layout: the coordinates cannot be found in the path of a Jar
+        def repo = file('repo')
+        new SyntheticLibraries(repo, 6).generate()
+        def libs = file('libs')
+        libs.mkdirs()
+        ['lib3', 'lib4', 'lib5'].each { name ->
+            Files.copy(new File(repo, "org/example/synthetic/$name/1.0/$name-1.0.jar").toPath(),
+                    new File(libs, "$name-1.0.jar").toPath())
+        }
+
+        settingsFile << 'rootProject.name = "test-project"'
+        buildFile << """
+            plugins {
+                id("java-library")
+                id("org.gradlex.extra-java-module-info")
+            }
+            repositories.ivy {
+                url = uri("${libs.absolutePath.replace('\\', '/')}")
+                patternLayout { artifact("[artifact]-[revision].[ext]") }
+                metadataSources { artifact() }
+            }
+            tasks.register("printClasspath") {
+                val classpath = configurations.runtimeClasspath.get().incoming.files
+                inputs.files(classpath)
+                doLast { classpath.forEach { println("Classpath: " + it.name) } }
+            }
+        """
+    }
+
+    def "Jars are matched to specs by the coordinates of their component"() {
+        given:
+        buildFile << '''
+            dependencies {
+                implementation("org.example:lib5:1.0")
+            }
+            extraJavaModuleInfo {
+                module("org.example:lib5", "org.example.lib5") { exportAllPackages() }
+            }
+        '''
+
+        when:
+        def result = task('printClasspath')
+
+        then:
+        result.output.contains('Classpath: lib5-1.0-module.jar')
+    }
+
+    def "Jars are merged by the coordinates of their component"() {
+        given:
+        buildFile << '''
+            dependencies {
+                implementation("org.example:lib3:1.0")
+                implementation("org.example:lib4:1.0")
+            }
+            extraJavaModuleInfo {
+                automaticModule("org.example:lib3", "org.example.lib3") { mergeJar("org.example:lib4") }
+            }
+        '''
+
+        when:
+        def result = task('printClasspath')
+
+        then:
+        result.output.contains('Classpath: lib3-1.0-module.jar')
+        !result.output.contains('Classpath: lib4-1.0.jar')
+    }
+
+    def "Jars of components with the same name in different groups are matched to their own spec"() {
+        given:
+        def groupsRepo = file('groups')
+        ['org.one/lib-SNAPSHOT.jar', 'org.two/lib-r05.jar'].each { path ->
+            def target = new File(groupsRepo, path)
+            target.parentFile.mkdirs()
+            Files.copy(new File(file('libs'), 'lib5-1.0.jar').toPath(), target.toPath())
+        }
+        buildFile << """
+            repositories.ivy {
+                url = uri("${groupsRepo.absolutePath.replace('\\', '/')}")
+                patternLayout { artifact("[organisation]/[artifact]-[revision].[ext]") }
+                metadataSources { artifact() }
+            }
+            dependencies {
+                implementation("org.one:lib:SNAPSHOT")
+                implementation("org.two:lib:r05")
+            }
+            extraJavaModuleInfo {
+                module("org.one:lib", "org.one.lib")
+                module("org.two:lib", "org.two.lib")
+            }
+            tasks.register<Sync>("collect") {
+                from(configurations.runtimeClasspath)
+                into(layout.buildDirectory.dir("collected"))
+            }
+        """
+
+        when:
+        task('collect')
+
+        then:
+        moduleName('lib-SNAPSHOT-module.jar') == 'org.one.lib'
+        moduleName('lib-r05-module.jar') == 'org.two.lib'
+    }
+
+    private String moduleName(String jarName) {
+        new ZipFile(file("build/collected/$jarName")).withCloseable { jar ->
+            ModuleDescriptor.read(jar.getInputStream(jar.getEntry('module-info.class'))).name()
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package org.gradlex.javamodule.moduleinfo.test
+
+import org.gradlex.javamodule.moduleinfo.test.fixture.GradleBuild
+import spock.lang.Specification
+
+class ModuleTransformStatisticsFunctionalTest extends Specification {
+
+    @Delegate
+    GradleBuild build = new GradleBuild()
+
+    def setup() {
+        settingsFile << 'rootProject.name = "test-project"'
+        buildFile << '''
+            plugins {
+                id("java-library")
+                id("org.gradlex.extra-java-module-info")
+            }
+            dependencies {
+                implementation("commons-cli:commons-cli:1.4")
+                implementation("org.apache.zookeeper:zookeeper-jute:3.8.0") { isTransitive = false }
+                implementation("commons-logging:commons-logging:1.2")
+                implementation("org.apache.commons:commons-lang3:3.10")
+                implementation("com.google.code.gson:gson:2.8.6")
+                implementation("javax.inject:javax.inject:1")
+            }
+            extraJavaModuleInfo {
+                failOnMissingModuleInfo.set(false)
+                module("commons-cli:commons-cli", "org.apache.commons.cli") {
+                    exportAllPackages()
+                    mergeJar("org.apache.zookeeper:zookeeper-jute")
+                }
+                automaticModule("commons-logging:commons-logging", "org.apache.commons.logging")
+            }
+        '''
+    }
+
+    def "lists how each artifact is transformed"() {
+        when:
+        def result = task('moduleTransformStatistics', '-q')
+
+        then:
+        def lines = result.output.readLines()
+        lines.contains('compileClasspath')
+        lines.contains('runtimeClasspath')
+        line(lines, 'commons-cli-1.4.jar').contains('module-info generated')
+        line(lines, 'zookeeper-jute-3.8.0.jar').contains('merged into another Jar')
+        line(lines, 'commons-logging-1.2.jar').contains('Automatic-Module-Name added')
+        line(lines, 'commons-lang3-3.10.jar').contains('automatic module')
+        line(lines, 'gson-2.8.6.jar').contains('real module')
+        line(lines, 'javax.inject-1.jar').contains('skipped')
+    }
+
+    def "marks rewritten Jars whose transform result is reused"() {
+        given:
+        task('moduleTransformStatistics', '-q')
+
+        when:
+        def result = task('moduleTransformStatistics', '-q')
+
+        then:
+        def lines = result.output.readLines()
+        line(lines, 'commons-cli-1.4.jar').endsWith('(from cache)')
+        line(lines, 'commons-logging-1.2.jar').endsWith('(from cache)')
+        !line(lines, 'gson-2.8.6.jar').contains('(from cache)')
+    }
+
+    private static String line(List<String> lines, String jarName) {
+        lines.find { it.trim().startsWith(jarName + ' ') }
+    }
+}
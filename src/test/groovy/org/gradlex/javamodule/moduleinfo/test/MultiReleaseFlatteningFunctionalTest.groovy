@@ -0,0 +1,82 @@
+package org.gradlex.javamodule.moduleinfo.test
+
+import org.gradlex.javamodule.moduleinfo.test.fixture.GradleBuild
+import spock.lang.Specification
+
+import java.util.jar.JarFile
+import java.util.zip.ZipEntry
+import java.util.zip.ZipOutputStream
+
+class MultiReleaseFlatteningFunctionalTest extends Specification {
+
+    @Delegate
+    GradleBuild build = new GradleBuild()
+
+    def setup() {
+        new ZipOutputStream(new FileOutputStream(file('libs/mr.jar'))).withCloseable { out ->
+            [
+                    'META-INF/MANIFEST.MF'                  : 'Manifest-Version: 1.0\r\nMulti-Release: true\r\n\r\n',
+                    'org/example/A.txt'                     : 'base',
+                    'org/example/C.txt'                     : 'base',
+                    'META-INF/versions/11/org/example/A.txt': '11',
+                    'META-INF/versions/17/org/example/A.txt': '17',
+                    'META-INF/versions/21/org/example/A.txt': '21',
+                    'META-INF/versions/21/org/example/B.txt': '21'
+            ].each { name, content ->
+                out.putNextEntry(new ZipEntry(name))
+                out.write(content.bytes)
+                out.closeEntry()
+            }
+        }
+        settingsFile << 'rootProject.name = "test-project"'
+        buildFile << '''
+            plugins {
+                id("java-library")
+                id("org.gradlex.extra-java-module-info")
+            }
+            dependencies {
+                implementation(files("libs/mr.jar"))
+            }
+            extraJavaModuleInfo {
+                automaticModule("mr.jar", "org.example.mr")
+            }
+            tasks.register<Sync>("collect") {
+                from(configurations.runtimeClasspath)
+                into(layout.buildDirectory.dir("collected"))
+            }
+        '''
+    }
+
+    def "keeps all versions by default"() {
+        when:
+        task('collect')
+
+        then:
+        def jar = new JarFile(file('build/collected/mr-module.jar'))
+        jar.manifest.mainAttributes.getValue('Multi-Release') == 'true'
+        jar.getEntry('META-INF/versions/21/org/example/B.txt') != null
+        jar.close()
+    }
+
+    def "can flatten a Multi-Release Jar for a target release"() {
+        given:
+        buildFile << '''
+            extraJavaModuleInfo {
+                multiReleaseTarget.set(17)
+            }
+        '''
+
+        when:
+        task('collect')
+
+        then:
+        def jar = new JarFile(file('build/collected/mr-module.jar'))
+        jar.manifest.mainAttributes.getValue('Multi-Release') == null
+        jar.manifest.mainAttributes.getValue('Automatic-Module-Name') == 'org.example.mr'
+        jar.getInputStream(jar.getEntry('org/example/A.txt')).text == '17'
+        jar.getInputStream(jar.getEntry('org/example/C.txt')).text == 'base'
+        jar.getEntry('org/example/B.txt') == null
+        jar.entries().toList().every { !it.name.startsWith('META-INF/versions') }
+        jar.close()
+    }
+}
@@ -0,0 +1,107 @@
+package org.gradlex.javamodule.moduleinfo.test
+
+import org.gradle.testkit.runner.GradleRunner
+import org.gradlex.javamodule.moduleinfo.test.fixture.GradleBuild
+import org.gradlex.javamodule.moduleinfo.test.fixture.SyntheticLibraries
+import spock.lang.Requires
+import spock.lang.Specification
+
+/**
+ * Large-scale scenario to catch scaling regressions. It is only executed if the 'performanceScenario' system
+ * property is set (e.g. './gradlew test -PperformanceScenario'). The size can be adjusted through
+ * 'performanceScenario.projects' and 'performanceScenario.jars'.
+ */
+@Requires({ System.getProperty('performanceScenario') != null })
+class PerformanceScenarioFunctionalTest extends Specification {
+
+    static final int PROJECTS = Integer.getInteger('performanceScenario.projects', 300)
+    static final int JARS = roundToKinds(Integer.getInteger('performanceScenario.jars', 3000))
+    static final int DEPENDENCIES_PER_PROJECT = 5 * SyntheticLibraries.Kind.values().length
+
+    @Delegate
+    GradleBuild build = new GradleBuild()
+
+    File testKitDir = file('testkit')
+
+    def setup() {
+        def repo = file('repo')
+        def libraries = new SyntheticLibraries(repo, JARS)
+        libraries.generate()
+
+        settingsFile << """
+            rootProject.name = "performance-scenario"
+            dependencyResolutionManagement {
+                repositories { maven { url = uri("${repo.absolutePath.replace('\\', '/')}") } }
+            }
+        """
+        // all build files are identical to measure the plugin and not Kotlin script compilation
+        String subprojectBuildFile = """
+            plugins {
+                id("java-library")
+                id("org.gradlex.extra-java-module-info")
+            }
+            val index = name.removePrefix("p").toInt()
+            dependencies {
+                val first = index * $DEPENDENCIES_PER_PROJECT
+                for (i in first until first + $DEPENDENCIES_PER_PROJECT) {
+                    implementation("${SyntheticLibraries.GROUP}:lib\${i % $JARS}:${SyntheticLibraries.VERSION}")
+                }
+            }
+            tasks.register("resolveClasspaths") {
+                inputs.files(configurations.compileClasspath, configurations.runtimeClasspath)
+                doLast { println("Resolved " + inputs.files.files.size + " files") }
+            }
+            tasks.register("reportHeap") {
+                doLast {
+                    val runtime = Runtime.getRuntime()
+                    System.gc()
+                    println("Daemon heap: " + (runtime.totalMemory() - runtime.freeMemory()) / (1024 * 1024) + " MB")
+                }
+            }
+            ${libraries.extensionBlock()}
+        """
+        for (int p = 0; p < PROJECTS; p++) {
+            settingsFile << "include(\":p$p\")\n"
+            file("p$p/build.gradle.kts") << subprojectBuildFile
+        }
+    }
+
+    def "measures configuration time, transform time and daemon heap"() {
+        when:
+        long configuration = measure('help')
+        long transformCold = measure('resolveClasspaths')
+        long transformWarm = measure('resolveClasspaths')
+        String heap = scenarioRunner(':p0:reportHeap', '-q').build().output.trim()
+
+        then:
+        def report = """
+            Gradle: ${GradleBuild.gradleVersionUnderTest ?: 'current'}
+            Projects: $PROJECTS
+            Jars: $JARS
+            Configuration time: $configuration ms
+            Transform time (cold): $transformCold ms
+            Transform time (warm): $transformWarm ms
+            $heap
+        """.stripIndent().trim()
+        println(report)
+        def reportDir = new File('build/performance-scenario').tap { mkdirs() }
+        new File(reportDir, "gradle-${GradleBuild.gradleVersionUnderTest ?: 'current'}.txt").text = report
+        heap.startsWith('Daemon heap:')
+    }
+
+    private long measure(String task) {
+        long start = System.nanoTime()
+        scenarioRunner(task, '-q').build()
+        (System.nanoTime() - start).intdiv(1_000_000)
+    }
+
+    private GradleRunner scenarioRunner(String... args) {
+        // a dedicated TestKit directory to start from empty transform caches and a fresh daemon
+        runner(args).withTestKitDir(testKitDir)
+    }
+
+    private static int roundToKinds(int jars) {
+        int kinds = SyntheticLibraries.Kind.values().length
+        Math.max(kinds, jars - jars % kinds)
+    }
+}
@@ -1,6 +1,7 @@
 package org.gradlex.javamodule.moduleinfo.test
 
 import org.gradlex.javamodule.moduleinfo.test.fixture.GradleBuild
+import spock.lang.IgnoreIf
 import spock.lang.Specification
 
 class RecommendModuleSpecFunctionalTest extends Specification {
@@ -55,6 +56,29 @@ class RecommendModuleSpecFunctionalTest extends Specification {
             |}'''.stripMargin())
     }
 
+    @IgnoreIf({ GradleBuild.gradleVersionUnderTest }) // the configuration cache is only used with the latest Gradle
+    def "reuses the configuration cache entry"() {
+        given:
+        buildFile << '''
+            plugins {
+                id("java")
+                id("org.gradlex.extra-java-module-info")
+            }
+            dependencies {
+                implementation("org.yaml:snakeyaml:1.33")
+            }
+        '''
+
+        when:
+        def first = task("moduleDescriptorRecommendations")
+        def second = task("moduleDescriptorRecommendations")
+
+        then:
+        first.output.contains('Configuration cache entry stored.')
+        second.output.contains('Reusing configuration cache.')
+        second.output.contains('module("org.yaml:snakeyaml", "org.yaml.snakeyaml") {')
+    }
+
     def "does not provide recommendations for already modular jars"() {
         given:
         buildFile << ''' 
@@ -56,6 +56,40 @@ class RemovePackageFunctionalTest extends Specification {
         run()
     }
 
+    def "can remove packages and their sub-packages with a wildcard"() {
+        given:
+        file("src/main/java/module-info.java") << """
+            module org.example.app {
+                requires jdk.xml.dom;
+                requires xerces;
+            }
+        """
+        file("src/main/java/org/gradle/sample/app/Main.java") << """
+            package org.example.app;
+            public class Main {
+                public static void main(String[] args) {
+                    org.apache.xerces.util.DOMUtil util;
+                }
+            }
+        """
+
+        buildFile << """
+            dependencies {
+                implementation("xerces:xercesImpl:2.12.2") { isTransitive = false }
+            }
+            extraJavaModuleInfo {
+                module("xerces:xercesImpl", "xerces") {
+                    removePackage("org.w3c.dom.**")
+                    exportAllPackagesExcept("org.apache.xerces.impl.**")
+                    requires("java.xml")
+                }
+            }
+        """
+
+        expect:
+        run()
+    }
+
     def "removes package from module-info if removePackage and preserveExisting are used together"() {
         given:
         file("src/main/java/module-info.java") << """
@@ -3,6 +3,7 @@ package org.gradlex.javamodule.moduleinfo.test
 import org.gradle.testkit.runner.TaskOutcome
 import org.gradlex.javamodule.moduleinfo.test.fixture.GradleBuild
 import org.gradlex.javamodule.moduleinfo.test.fixture.LegacyLibraries
+import spock.lang.IgnoreIf
 import spock.lang.Specification
 
 class RequireAllDefinedDependenciesFunctionalTest extends Specification {
@@ -78,6 +79,41 @@ class RequireAllDefinedDependenciesFunctionalTest extends Specification {
         run().task(':run').outcome == TaskOutcome.SUCCESS
     }
 
+    @IgnoreIf({ GradleBuild.gradleVersionUnderTest }) // the configuration cache is only used with the latest Gradle
+    def "reuses the configuration cache entry with requires directives based on component metadata"() {
+        given:
+        buildFile << """
+            dependencies {
+                implementation("org.apache.httpcomponents:httpclient:4.5.14")
+            }
+            tasks.register("resolveRuntimeClasspath") {
+                inputs.files(configurations.runtimeClasspath)
+                doLast { println(inputs.files.map { it.name }) }
+            }
+            extraJavaModuleInfo {
+                module(${libs.commonsHttpClient}, "org.apache.httpcomponents.httpclient") {
+                    exportAllPackages()
+                    requireAllDefinedDependencies()
+                }
+                module(${libs.commonsLogging}, "org.apache.commons.logging") {
+                    exportAllPackages()
+                    requireAllDefinedDependencies()
+                }
+                knownModule("commons-codec:commons-codec", "org.apache.commons.codec")
+                knownModule("org.apache.httpcomponents:httpcore", "org.apache.httpcomponents.httpcore")
+            }
+        """
+
+        when:
+        def first = task('resolveRuntimeClasspath')
+        def second = task('resolveRuntimeClasspath')
+
+        then:
+        first.output.contains('Configuration cache entry stored.')
+        second.output.contains('Reusing configuration cache.')
+        second.output.contains('httpclient-4.5.14-module.jar')
+    }
+
     // See: https://github.com/gradlex-org/extra-java-module-info/issues/47
     def "does not fail in case of runtime-only dependencies"() {
         given:
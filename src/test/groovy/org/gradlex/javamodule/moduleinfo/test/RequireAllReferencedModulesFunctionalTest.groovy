@@ -0,0 +1,117 @@
+package org.gradlex.javamodule.moduleinfo.test
+
+import java.lang.module.ModuleDescriptor
+import java.util.zip.ZipFile
+import org.gradle.testkit.runner.TaskOutcome
+import org.gradlex.javamodule.moduleinfo.test.fixture.GradleBuild
+import org.gradlex.javamodule.moduleinfo.test.fixture.LegacyLibraries
+import spock.lang.Specification
+
+class RequireAllReferencedModulesFunctionalTest extends Specification {
+
+    @Delegate
+    GradleBuild build = new GradleBuild()
+
+    LegacyLibraries libs = new LegacyLibraries(false)
+
+    def setup() {
+        settingsFile << 'rootProject.name = "test-project"'
+        buildFile << '''
+            plugins {
+                id("application")
+                id("org.gradlex.extra-java-module-info")
+            }
+            application {
+                mainModule.set("org.gradle.sample.app")
+                mainClass.set("org.gradle.sample.app.Main")
+            }
+        '''
+    }
+
+    def "can automatically add requires directives based on the classes referenced in the bytecode"() {
+        given:
+        file("src/main/java/org/gradle/sample/app/Main.java") << """
+            package org.gradle.sample.app;
+
+            import java.util.TreeSet;
+            import org.apache.http.client.methods.HttpPost;
+
+            public class Main {
+                public static void main(String[] args) throws Exception {
+                    new HttpPost("http://targethost/login");
+                    TreeSet<String> requires = new TreeSet<>();
+                    HttpPost.class.getModule().getDescriptor().requires().forEach(r -> requires.add(r.name()));
+                    System.out.println("Requires: " + requires);
+                }
+            }
+        """
+        file("src/main/java/module-info.java") << """
+            module org.gradle.sample.app {
+                exports org.gradle.sample.app;
+
+                requires org.apache.httpcomponents.httpclient;
+            }
+        """
+        buildFile << """
+            dependencies {
+                implementation("org.apache.httpcomponents:httpclient:4.5.14")
+            }
+
+            extraJavaModuleInfo {
+                module(${libs.commonsHttpClient}, "org.apache.httpcomponents.httpclient") {
+                    exportAllPackages()
+                    requireAllReferencedModules()
+                }
+                module(${libs.commonsLogging}, "org.apache.commons.logging") {
+                    exportAllPackages()
+                    requireAllReferencedModules()
+                }
+            }
+        """
+
+        when:
+        def result = run()
+
+        then:
+        result.task(':run').outcome == TaskOutcome.SUCCESS
+        result.output.contains('org.apache.commons.codec')
+        result.output.contains('org.apache.commons.logging')
+        result.output.contains('org.apache.httpcomponents.httpcore')
+    }
+
+    def "finds the referenced modules on the classpaths of all source sets"() {
+        given:
+        buildFile << """
+            dependencies {
+                testImplementation("org.apache.httpcomponents:httpclient:4.5.14")
+            }
+
+            extraJavaModuleInfo {
+                module(${libs.commonsHttpClient}, "org.apache.httpcomponents.httpclient") {
+                    exportAllPackages()
+                    requireAllReferencedModules()
+                }
+                module(${libs.commonsLogging}, "org.apache.commons.logging") {
+                    exportAllPackages()
+                    requireAllReferencedModules()
+                }
+            }
+
+            tasks.register<Sync>("collect") {
+                from(configurations.testRuntimeClasspath)
+                into(layout.buildDirectory.dir("collected"))
+            }
+        """
+
+        when:
+        task('collect')
+
+        then:
+        def requires = new ZipFile(file('build/collected/httpclient-4.5.14-module.jar')).withCloseable { jar ->
+            ModuleDescriptor.read(jar.getInputStream(jar.getEntry('module-info.class'))).requires()*.name()
+        }
+        requires.contains('org.apache.commons.codec')
+        requires.contains('org.apache.commons.logging')
+        requires.contains('org.apache.httpcomponents.httpcore')
+    }
+}
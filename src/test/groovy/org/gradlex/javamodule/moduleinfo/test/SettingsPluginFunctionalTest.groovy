@@ -0,0 +1,88 @@
+package org.gradlex.javamodule.moduleinfo.test
+
+import org.gradle.testkit.runner.TaskOutcome
+import org.gradlex.javamodule.moduleinfo.test.fixture.GradleBuild
+import spock.lang.IgnoreIf
+import spock.lang.Specification
+
+@IgnoreIf({ GradleBuild.gradleVersionUnderTest?.startsWith("6") }) // requires 'inferModulePath' in all subprojects
+class SettingsPluginFunctionalTest extends Specification {
+
+    @Delegate
+    GradleBuild build = new GradleBuild()
+
+    def setup() {
+        settingsFile << '''
+            plugins {
+                id("org.gradlex.extra-java-module-info")
+            }
+            dependencyResolutionManagement {
+                repositories.mavenCentral()
+            }
+            rootProject.name = "test-project"
+            include("app1", "app2")
+
+            extraJavaModuleInfo {
+                module("commons-cli:commons-cli", "org.apache.commons.cli") {
+                    exports("org.apache.commons.cli")
+                }
+            }
+        '''
+        ['app1', 'app2'].each { name ->
+            file("$name/build.gradle.kts") << '''
+                plugins {
+                    id("java-library")
+                }
+                dependencies {
+                    implementation("commons-cli:commons-cli:1.4")
+                }
+            '''
+            file("$name/src/main/java/module-info.java") << """
+                module org.example.$name {
+                    requires org.apache.commons.cli;
+                }
+            """
+            file("$name/src/main/java/org/example/$name/Main.java") << """
+                package org.example.$name;
+
+                public class Main {
+                    org.apache.commons.cli.Options options = new org.apache.commons.cli.Options();
+                }
+            """
+        }
+    }
+
+    def "module specs defined in settings are used in all projects"() {
+        when:
+        def result = task(':app1:compileJava', ':app2:compileJava')
+
+        then:
+        result.task(':app1:compileJava').outcome == TaskOutcome.SUCCESS
+        result.task(':app2:compileJava').outcome == TaskOutcome.SUCCESS
+    }
+
+    def "module specs defined in settings can be extended in a project"() {
+        given:
+        file('app2/build.gradle.kts') << '''
+            dependencies {
+                implementation("commons-collections:commons-collections:3.2.2")
+            }
+            extraJavaModuleInfo {
+                automaticModule("commons-collections:commons-collections", "org.apache.commons.collections")
+            }
+        '''
+        file('app2/src/main/java/module-info.java').text = '''
+            module org.example.app2 {
+                requires org.apache.commons.cli;
+                requires org.apache.commons.collections;
+            }
+        '''
+
+        when:
+        def result = task(':app1:compileJava', ':app2:compileJava')
+
+        then:
+        result.task(':app1:compileJava').outcome == TaskOutcome.SUCCESS
+        result.task(':app2:compileJava').outcome == TaskOutcome.SUCCESS
+    }
+}
@@ -55,7 +55,8 @@ class GradleBuild {
     }
 
     GradleRunner runner(String... args) {
-        if (buildFile.exists()) {
+        // only added once, so that a build file that is not changed between runs allows configuration cache reuse
+        if (buildFile.exists() && !buildFile.text.contains('\nrepositories.mavenCentral()')) {
             buildFile << '\nrepositories.mavenCentral()'
             if (gradleVersionUnderTest && gradleVersionUnderTest.startsWith("6.")) {
                 buildFile << '\njava.modularity.inferModulePath.set(true)'
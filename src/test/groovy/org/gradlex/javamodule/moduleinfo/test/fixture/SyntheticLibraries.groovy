@@ -0,0 +1,149 @@
+package org.gradlex.javamodule.moduleinfo.test.fixture
+
+import org.objectweb.asm.ClassWriter
+import org.objectweb.asm.ModuleVisitor
+import org.objectweb.asm.Opcodes
+
+import java.util.jar.Attributes
+import java.util.jar.JarEntry
+import java.util.jar.JarOutputStream
+import java.util.jar.Manifest
+
+/**
+ * Generates a local Maven repository with synthetic libraries of all the kinds the plugin deals with:
+ * real modules, automatic modules, plain Jars, Jars that are merged into other Jars, and Jars that are
+ * patched with 'module()' using 'requireAllDefinedDependencies()'.
+ */
+class SyntheticLibraries {
+
+    static final String GROUP = 'org.example.synthetic'
+    static final String VERSION = '1.0'
+
+    enum Kind {
+        REAL_MODULE, AUTOMATIC_MODULE, MODULE_WITH_METADATA_REQUIRES, AUTOMATIC_MODULE_WITH_MERGE, MERGED, PLAIN
+    }
+
+    final File repo
+    final int count
+    final int classesPerJar
+
+    SyntheticLibraries(File repo, int count, int classesPerJar = 20) {
+        this.repo = repo
+        this.count = count
+        this.classesPerJar = classesPerJar
+    }
+
+    static Kind kind(int i) {
+        Kind.values()[i % Kind.values().length]
+    }
+
+    static String name(int i) {
+        "lib$i"
+    }
+
+    static String moduleName(int i) {
+        "org.example.synthetic.lib$i"
+    }
+
+    void generate() {
+        for (int i = 0; i < count; i++) {
+            def dir = new File(repo, "${GROUP.replace('.', '/')}/${name(i)}/$VERSION")
+            dir.mkdirs()
+            new File(dir, "${name(i)}-${VERSION}.pom").text = pom(i)
+            writeJar(i, new File(dir, "${name(i)}-${VERSION}.jar"))
+        }
+    }
+
+    /**
+     * @return the 'extraJavaModuleInfo {}' block that matches the generated libraries
+     */
+    String extensionBlock() {
+        def lines = ['extraJavaModuleInfo {', '    failOnMissingModuleInfo.set(false)']
+        for (int i = 0; i < count; i++) {
+            switch (kind(i)) {
+                case Kind.REAL_MODULE:
+                    lines << "    knownModule(\"$GROUP:${name(i)}\", \"${moduleName(i)}\")"
+                    break
+                case Kind.MODULE_WITH_METADATA_REQUIRES:
+                    lines << "    module(\"$GROUP:${name(i)}\", \"${moduleName(i)}\") { exportAllPackages(); requireAllDefinedDependencies() }"
+                    break
+                case Kind.AUTOMATIC_MODULE_WITH_MERGE:
+                    if (i + 1 < count) {
+                        lines << "    automaticModule(\"$GROUP:${name(i)}\", \"${moduleName(i)}\") { mergeJar(\"$GROUP:${name(i + 1)}\") }"
+                    } else {
+                        lines << "    automaticModule(\"$GROUP:${name(i)}\", \"${moduleName(i)}\")"
+                    }
+                    break
+                default:
+                    break
+            }
+        }
+        lines << '}'
+        lines.join('\n')
+    }
+
+    private String pom(int i) {
+        // 'module()' specs with 'requireAllDefinedDependencies()' depend on the closest real module
+        String dependency = kind(i) == Kind.MODULE_WITH_METADATA_REQUIRES ? """
+            <dependencies>
+                <dependency>
+                    <groupId>$GROUP</groupId>
+                    <artifactId>${name(i - 2)}</artifactId>
+                    <version>$VERSION</version>
+                </dependency>
+            </dependencies>""" : ''
+        """<?xml version="1.0" encoding="UTF-8"?>
+            <project xmlns="http://maven.apache.org/POM/4.0.0">
+                <modelVersion>4.0.0</modelVersion>
+                <groupId>$GROUP</groupId>
+                <artifactId>${name(i)}</artifactId>
+                <version>$VERSION</version>$dependency
+            </project>
+        """.stripIndent()
+    }
+
+    private void writeJar(int i, File jar) {
+        Manifest manifest = new Manifest()
+        manifest.mainAttributes.put(Attributes.Name.MANIFEST_VERSION, '1.0')
+        if (kind(i) == Kind.AUTOMATIC_MODULE) {
+            manifest.mainAttributes.putValue('Automatic-Module-Name', moduleName(i))
+        }
+        // merged Jars share the package of the Jar they are merged into
+        String basePackage = kind(i) == Kind.MERGED ? "org/example/synthetic/lib${i - 1}" : "org/example/synthetic/lib$i"
+        new JarOutputStream(new FileOutputStream(jar), manifest).withCloseable { out ->
+            List<String> packages = [basePackage, "$basePackage/internal".toString()]
+            for (int c = 0; c < classesPerJar; c++) {
+                String className = "${packages[c % 2]}/Class${i}_$c"
+                out.putNextEntry(new JarEntry("${className}.class"))
+                out.write(classFile(className))
+                out.closeEntry()
+            }
+            out.putNextEntry(new JarEntry("META-INF/services/org.example.synthetic.Service"))
+            out.write("${packages[0].replace('/', '.')}.Class${i}_0\n".getBytes('UTF-8'))
+            out.closeEntry()
+            if (kind(i) == Kind.REAL_MODULE) {
+                out.putNextEntry(new JarEntry('module-info.class'))
+                out.write(moduleInfo(moduleName(i), packages))
+                out.closeEntry()
+            }
+        }
+    }
+
+    private static byte[] classFile(String className) {
+        ClassWriter cw = new ClassWriter(0)
+        cw.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, className, null, 'java/lang/Object', null)
+        cw.visitEnd()
+        cw.toByteArray()
+    }
+
+    private static byte[] moduleInfo(String moduleName, List<String> packages) {
+        ClassWriter cw = new ClassWriter(0)
+        cw.visit(Opcodes.V9, Opcodes.ACC_MODULE, 'module-info', null, null, null)
+        ModuleVisitor mv = cw.visitModule(moduleName, 0, VERSION)
+        mv.visitRequire('java.base', Opcodes.ACC_MANDATED, null)
+        packages.each { mv.visitExport(it, 0) }
+        mv.visitEnd()
+        cw.visitEnd()
+        cw.toByteArray()
+    }
+}